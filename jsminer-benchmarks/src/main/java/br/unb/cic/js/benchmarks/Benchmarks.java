@@ -0,0 +1,24 @@
+package br.unb.cic.js.benchmarks;
+
+import lombok.val;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. It accepts the usual JMH command line, and always attaches the gc profiler so
+ * every result reports the allocation rate next to the throughput.
+ */
+public class Benchmarks {
+    public static void main(String[] args) throws Exception {
+        val cli = new CommandLineOptions(args);
+
+        val options = new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
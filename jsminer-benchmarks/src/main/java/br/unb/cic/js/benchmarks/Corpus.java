@@ -0,0 +1,95 @@
+package br.unb.cic.js.benchmarks;
+
+import lombok.val;
+
+/**
+ * Corpus generates deterministic javascript sources of different shapes for the benchmarks, so they don't depend on
+ * files outside of this module.
+ */
+final class Corpus {
+
+    // A module touching most of the features counted by the visitor, {n} is replaced to get unique identifiers
+    private static final String MODULE = String.join("\n",
+            "import { map{n}, filter{n} } from './util{n}';",
+            "const limit{n} = 10;",
+            "let counter{n} = 0;",
+            "",
+            "export class Queue{n} extends Base {",
+            "    constructor(items = [], ...rest) {",
+            "        super(...rest);",
+            "        this.items = items;",
+            "    }",
+            "",
+            "    async drain() {",
+            "        const { head, tail } = this;",
+            "        const [first, second] = this.items;",
+            "        await Promise.all([head, tail]).then(r => r.length);",
+            "        return new Promise((resolve, reject) => resolve(first + second));",
+            "    }",
+            "",
+            "    *entries() {",
+            "        for (let i = 0; i < this.items.length; i++) {",
+            "            yield [i, this.items[i]];",
+            "        }",
+            "    }",
+            "};",
+            "",
+            "function legacy{n}(a, b) {",
+            "    var total = 0;",
+            "    if (a > b) {",
+            "        total = a - b;",
+            "    } else {",
+            "        total = b - a;",
+            "    }",
+            "    switch (total % 3) {",
+            "        case 0: total += 1; break;",
+            "        default: total -= 1;",
+            "    }",
+            "    try {",
+            "        counter{n} += filter{n}(map{n}([a, b], x => x * 2), x => x > limit{n}).length;",
+            "    } catch (e) {",
+            "        throw new Error('failed: ' + e.message);",
+            "    }",
+            "    return total;",
+            "}",
+            "");
+
+    private Corpus() {
+    }
+
+    /**
+     * A source made of a given number of modules.
+     */
+    static String modules(int count) {
+        val source = new StringBuilder();
+
+        for (int i = 0; i < count; i++) {
+            source.append(MODULE.replace("{n}", Integer.toString(i)));
+        }
+
+        return source.toString();
+    }
+
+    /**
+     * A source made of a given number of modules in a single line, the way bundlers emit them.
+     */
+    static String minified(int count) {
+        return modules(count).replaceAll("\\n\\s*", "");
+    }
+
+    /**
+     * The source of a named corpus size (small, medium or minified).
+     */
+    static String of(String size) {
+        switch (size) {
+            case "small":
+                return modules(1);
+            case "medium":
+                return modules(20);
+            case "minified":
+                return minified(40);
+            default:
+                throw new IllegalArgumentException("unknown corpus " + size);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package br.unb.cic.js.benchmarks;
+
+import br.unb.cic.js.miner.JSParser;
+import br.unb.cic.js.miner.JavaScriptParser;
+import br.unb.cic.js.miner.metrics.MetricVector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lexing and parsing with {@link JSParser#parse(String)} on sources of different sizes and shapes, and the
+ * lexer mode ({@link JSParser#lex(String)}) on the same sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"small", "medium", "minified"})
+    public String corpus;
+
+    private JSParser parser;
+    private String source;
+
+    @Setup
+    public void setup() {
+        parser = new JSParser();
+        source = Corpus.of(corpus);
+    }
+
+    @Benchmark
+    public JavaScriptParser.ProgramContext parse() throws Exception {
+        return parser.parse(source);
+    }
+
+    @Benchmark
+    public MetricVector lex() {
+        return parser.lex(source);
+    }
+}
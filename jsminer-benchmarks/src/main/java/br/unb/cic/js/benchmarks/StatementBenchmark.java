@@ -0,0 +1,111 @@
+package br.unb.cic.js.benchmarks;
+
+import br.unb.cic.js.miner.JSParser;
+import br.unb.cic.js.miner.JavaScriptParser;
+import br.unb.cic.js.miner.JavaScriptParserBaseVisitor;
+import br.unb.cic.js.miner.detectors.Detectors;
+import br.unb.cic.js.miner.detectors.StatementsDetector;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of counting statements. Each operation visits a program with {@link #STATEMENTS} flat
+ * statements, so the {@code gc.alloc.rate.norm} column is the number of bytes allocated per
+ * statement. The {@code current} benchmark runs the statements detector alone, so the other detectors aren't measured
+ * with it, and the {@code legacy} one keeps the former implementation, which built a list of the 21 alternatives of
+ * every statement and reduced it through a stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementBenchmark {
+
+    static final int STATEMENTS = 4096;
+
+    private JavaScriptParser.ProgramContext program;
+
+    private final Detectors statements = Detectors.of(List.of(new StatementsDetector()));
+
+    @Setup
+    public void setup() throws Exception {
+        val source = new StringBuilder();
+
+        for (int i = 0; i < STATEMENTS; i++) {
+            switch (i % 4) {
+                case 0:
+                    source.append("var a").append(i).append(" = ").append(i).append(";\n");
+                    break;
+                case 1:
+                    source.append("a").append(i - 1).append(" += 1;\n");
+                    break;
+                case 2:
+                    source.append(";\n");
+                    break;
+                default:
+                    source.append("debugger;\n");
+            }
+        }
+
+        program = new JSParser().parse(source.toString());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    public int current() {
+        return statements.count(program)[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    public int legacy() {
+        val visitor = new LegacyVisitor();
+
+        program.accept(visitor);
+
+        return visitor.statements;
+    }
+
+    static final class LegacyVisitor extends JavaScriptParserBaseVisitor<Void> {
+        int statements;
+
+        @Override
+        public Void visitStatement(JavaScriptParser.StatementContext ctx) {
+            val alternatives = new ArrayList<Boolean>();
+
+            alternatives.add(ctx.variableStatement() != null);
+            alternatives.add(ctx.importStatement() != null);
+            alternatives.add(ctx.importStatement() != null);
+            alternatives.add(ctx.block() != null);
+            alternatives.add(ctx.exportStatement() != null);
+            alternatives.add(ctx.emptyStatement_() != null);
+            alternatives.add(ctx.classDeclaration() != null);
+            alternatives.add(ctx.expressionStatement() != null);
+            alternatives.add(ctx.ifStatement() != null);
+            alternatives.add(ctx.iterationStatement() != null);
+            alternatives.add(ctx.continueStatement() != null);
+            alternatives.add(ctx.breakStatement() != null);
+            alternatives.add(ctx.returnStatement() != null);
+            alternatives.add(ctx.yieldStatement() != null);
+            alternatives.add(ctx.withStatement() != null);
+            alternatives.add(ctx.labelledStatement() != null);
+            alternatives.add(ctx.switchStatement() != null);
+            alternatives.add(ctx.throwStatement() != null);
+            alternatives.add(ctx.tryStatement() != null);
+            alternatives.add(ctx.debuggerStatement() != null);
+            alternatives.add(ctx.functionDeclaration() != null);
+
+            if (alternatives.stream().reduce((m, n) -> m || n).orElse(false)) {
+                statements++;
+            }
+
+            return visitChildren(ctx);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package br.unb.cic.js.benchmarks;
+
+import br.unb.cic.js.miner.JSParser;
+import br.unb.cic.js.miner.JSVisitor;
+import br.unb.cic.js.miner.JavaScriptParser;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the traversal of {@link JSVisitor} alone, a single walk of the tree dispatching its nodes to every
+ * registered detector. The trees are parsed once during the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitorBenchmark {
+
+    @Param({"small", "medium", "minified"})
+    public String corpus;
+
+    private JavaScriptParser.ProgramContext program;
+
+    @Setup
+    public void setup() throws Exception {
+        program = new JSParser().parse(Corpus.of(corpus));
+    }
+
+    @Benchmark
+    public int visit() {
+        val visitor = new JSVisitor();
+
+        program.accept(visitor);
+
+        return visitor.getTotalStatements();
+    }
+}
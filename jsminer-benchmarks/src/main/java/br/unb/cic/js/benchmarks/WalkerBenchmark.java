@@ -0,0 +1,124 @@
+package br.unb.cic.js.benchmarks;
+
+import br.unb.cic.js.date.Interval;
+import br.unb.cic.js.miner.metrics.Summary;
+import br.unb.cic.js.walker.RepositoryWalker;
+import lombok.val;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole traversal of {@link RepositoryWalker} on a synthetic git repository generated during the setup:
+ * {@link #COMMITS} daily commits, each one changing a few of the {@link #FILES} files of the repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class WalkerBenchmark {
+
+    static final int COMMITS = 10;
+    static final int FILES = 20;
+    static final int CHANGES = 5;
+
+    static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Param({"checkout", "checkout-free", "incremental", "parallel-groups"})
+    public String mode;
+
+    private Path root;
+    private Path project;
+    private Interval interval;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        root = Files.createTempDirectory("jsminer-benchmark");
+        project = root.resolve("project");
+
+        val begin = new Date(1577836800000L); // 01-01-2020
+
+        try (val git = Git.init().setDirectory(project.toFile()).setInitialBranch("main").call()) {
+            for (int c = 0; c < COMMITS; c++) {
+                for (int f = 0; f < FILES; f++) {
+                    // the first commit adds every file, the following ones change a few of them
+                    if (c == 0 || f % (FILES / CHANGES) == c % (FILES / CHANGES)) {
+                        val file = project.resolve("src").resolve("module" + f + ".js");
+
+                        Files.createDirectories(file.getParent());
+                        Files.writeString(file, Corpus.modules(1 + (c + f) % 4));
+                    }
+                }
+
+                val when = new PersonIdent("jsminer", "jsminer@example.org", new Date(begin.getTime() + c * DAY), TimeZone.getTimeZone("UTC"));
+
+                git.add().addFilepattern(".").call();
+                git.commit().setMessage("commit " + c).setAuthor(when).setCommitter(when).call();
+            }
+
+            // the walker looks for the main branch through origin/HEAD, as in a clone
+            val repository = git.getRepository();
+            val main = repository.resolve(Constants.R_HEADS + "main");
+
+            val remote = repository.updateRef(Constants.R_REMOTES + "origin/main");
+            remote.setNewObjectId(main);
+            remote.update();
+
+            val head = repository.updateRef(Constants.R_REMOTES + "origin/" + Constants.HEAD);
+
+            if (head.link(Constants.R_REMOTES + "origin/main") == RefUpdate.Result.LOCK_FAILURE) {
+                throw new IOException("failed to link origin/HEAD");
+            }
+        }
+
+        interval = Interval.builder()
+                .begin(begin)
+                .end(new Date(begin.getTime() + COMMITS * DAY))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Benchmark
+    public List<Summary> traverse() throws Exception {
+        val walker = RepositoryWalker.builder()
+                .project("project")
+                .path(project)
+                .checkoutFree(!mode.equals("checkout"))
+                .incremental(mode.equals("incremental"))
+                .parallelGroups(mode.equals("parallel-groups") ? 4 : 1)
+                .build();
+
+        return walker.traverse(interval, 1, Runtime.getRuntime().availableProcessors());
+    }
+}
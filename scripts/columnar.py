@@ -0,0 +1,84 @@
+import struct
+import sys
+import zlib
+from datetime import datetime
+
+# Loads a <project>.jsmc report written by the miner with --format COLUMNAR into a dict of columns.
+#python3 columnar.py /path/to/project.jsmc  (prints the report as csv)
+
+MAGIC = 0x434d534a
+
+
+def read(path):
+    with open(path, 'rb') as f:
+        data = f.read()
+
+    magic, version, count = struct.unpack_from('<iii', data, 0)
+
+    if magic != MAGIC:
+        raise ValueError(f'{path} is not a columnar report')
+
+    offset = 12
+    names = []
+
+    for _ in range(count):
+        (length,) = struct.unpack_from('<H', data, offset)
+        names.append(data[offset + 2:offset + 2 + length].decode('utf-8'))
+        offset += 2 + length
+
+    table = {'project': [], 'date': [], 'revision': []}
+    table.update({name: [] for name in names})
+
+    while offset + 4 <= len(data):
+        (size,) = struct.unpack_from('<i', data, offset)
+        end = offset + 4 + size
+
+        # a torn group is the tail of an interrupted run
+        if end + 4 > len(data) or zlib.crc32(data[offset + 4:end]) != struct.unpack_from('<I', data, end)[0]:
+            break
+
+        offset += 4
+        (rows, entries) = struct.unpack_from('<ii', data, offset)
+        offset += 8
+
+        projects = []
+
+        for _ in range(entries):
+            (length,) = struct.unpack_from('<H', data, offset)
+            projects.append(data[offset + 2:offset + 2 + length].decode('utf-8'))
+            offset += 2 + length
+
+        table['project'] += [projects[i] for i in struct.unpack_from(f'<{rows}i', data, offset)]
+        offset += 4 * rows
+
+        table['date'] += list(struct.unpack_from(f'<{rows}q', data, offset))
+        offset += 8 * rows
+
+        (entries,) = struct.unpack_from('<i', data, offset)
+        offset += 4
+
+        revisions = [data[offset + 20 * i:offset + 20 * (i + 1)].hex() for i in range(entries)]
+        offset += 20 * entries
+
+        table['revision'] += [revisions[i] for i in struct.unpack_from(f'<{rows}i', data, offset)]
+        offset += 4 * rows
+
+        for name in names:
+            table[name] += list(struct.unpack_from(f'<{rows}i', data, offset))
+            offset += 4 * rows
+
+        offset = end + 4
+
+    return table
+
+
+if __name__ == '__main__':
+    table = read(sys.argv[1])
+    columns = list(table.keys())
+
+    print(','.join(columns))
+
+    for row in range(len(table['date'])):
+        values = [table[c][row] for c in columns]
+        values[1] = datetime.fromtimestamp(values[1] / 1000).strftime('%d-%m-%Y')
+        print(','.join(str(v) for v in values))
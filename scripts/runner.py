@@ -1,22 +1,26 @@
+import csv
 import os
 import sys
 
-#python3 runner.py  /path/to/directory/  /path/to/file.jar /path/to/results directory/
+#python3 runner.py  /path/to/directory/  /path/to/file.jar /path/to/results directory/ [/path/to/projects.csv]
 
 dir = sys.argv[1]
 jar_path = sys.argv[2]
 memory_limit = 13 * 1024
 
-results = []
+# every repository is mined by a single jvm, so the parser stays warm across them. The miner itself skips the projects
+# that already have their .done marker and resumes the interrupted ones from their partial report.
+if len(sys.argv) > 4:
+    manifest = sys.argv[4]
+else:
+    manifest = os.path.join(sys.argv[3], 'manifest.csv')
 
-for root, dirs, files in os.walk(sys.argv[3]):
-    for file in files:
-        if file.endswith('.csv'):
-            results.append(file)
+    repositories = [name for name in os.listdir(dir) if os.path.isdir(os.path.join(dir, name))]
 
-repositories = [name for name in os.listdir(dir) if os.path.isdir(os.path.join(dir, name))]
+    with open(manifest, 'w', newline='') as f:
+        writer = csv.writer(f)
+        writer.writerow(['repository_name'])
+        writer.writerows([repository] for repository in repositories)
 
-for repository in repositories:
-    if repository+'.csv' not in results:
-        command = f"java -Xmx{memory_limit}m -jar {jar_path} -d {dir} -p {repository} -id '01-01-2012'"
-        os.system(command)
\ No newline at end of file
+command = f"java -Xmx{memory_limit}m -jar {jar_path} -d {dir} --manifest {manifest} -id '01-01-2012' --blob-store"
+os.system(command)
@@ -28,12 +28,26 @@ public class App {
             val walker = Walker.builder()
                     .path(arguments.directory)
                     .project(arguments.project)
+                    .manifest(arguments.manifest)
                     .steps(arguments.steps)
                     .hash(arguments.hash)
                     .projectThreads(arguments.threadsProjects)
                     .filesThreads(arguments.threadsFiles)
-                    .initialDate(Formatter.format.parse(arguments.initialDate))
-                    .endDate(Formatter.format.parse(arguments.endDate))
+                    .threads(arguments.threads)
+                    .checkoutFree(arguments.checkoutFree)
+                    .blobStore(arguments.blobStore)
+                    .incremental(arguments.incremental)
+                    .parallelGroups(arguments.parallelGroups)
+                    .maxFileSize(arguments.maxFileSize)
+                    .parserCacheLimit(arguments.parserCacheLimit)
+                    .parseTimeout(arguments.parseTimeout)
+                    .mode(arguments.mode)
+                    .generated(arguments.generated)
+                    .maxTokens(arguments.maxTokens)
+                    .parserCachePerProject(arguments.parserCachePerProject)
+                    .format(arguments.format)
+                    .initialDate(Formatter.parse(arguments.initialDate))
+                    .endDate(Formatter.parse(arguments.endDate))
                     .build();
 
             walker.traverse();
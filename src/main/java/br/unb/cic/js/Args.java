@@ -1,5 +1,9 @@
 package br.unb.cic.js;
 
+import br.unb.cic.js.miner.JSParser;
+import br.unb.cic.js.miner.Mode;
+import br.unb.cic.js.walker.report.ReportFormat;
+import br.unb.cic.js.walker.rules.GeneratedPolicy;
 import com.beust.jcommander.Parameter;
 
 public class Args {
@@ -9,6 +13,9 @@ public class Args {
     @Parameter(names = {"-p", "--project"}, description = "Given the project flag it will only mine for that project")
     public String project = "";
 
+    @Parameter(names = {"-m", "--manifest"}, description = "A csv file with a repository_name column (e.g. scripts/projects.csv), its projects are mined in a single batch skipping the ones already finished")
+    public String manifest = "";
+
     @Parameter(names = {"-s", "--steps"}, description = "The delta interval through each commit")
     public Integer steps = 7;
 
@@ -18,6 +25,9 @@ public class Args {
     @Parameter(names = {"-ft", "--files-threads"}, description = "How many threads to use when analyzing a project (defaults to number of processors")
     public Integer threadsFiles = Runtime.getRuntime().availableProcessors();
 
+    @Parameter(names = {"-t", "--threads"}, description = "Size of a single work-stealing pool shared by every project and file, replacing -pt and -ft (0 keeps the fixed pools)")
+    public Integer threads = 0;
+
     @Parameter(names = {"-id", "--initial-date"}, description = "When to start walking a project (dd-mm-yyyy)")
     public String initialDate = "01-06-2013";
 
@@ -27,6 +37,42 @@ public class Args {
     @Parameter(names = {"--hash"}, description = "A commit hash to be verified")
     public String hash = "";
 
+    @Parameter(names = {"-cf", "--checkout-free"}, description = "Read the files straight from the git object database instead of checking out each revision")
+    public boolean checkoutFree = false;
+
+    @Parameter(names = {"-bs", "--blob-store"}, description = "Persist the metrics of every parsed file in the output directory, so they are reused across executions and projects")
+    public boolean blobStore = false;
+
+    @Parameter(names = {"-inc", "--incremental"}, description = "Compute each commit group from the files changed since the previous one (implies --checkout-free)")
+    public boolean incremental = false;
+
+    @Parameter(names = {"-pg", "--parallel-groups"}, description = "How many commit groups of a project to collect at the same time (implies --checkout-free)")
+    public Integer parallelGroups = 1;
+
+    @Parameter(names = {"--max-file-size"}, description = "Files larger than this many bytes aren't parsed, they are counted as files and listed with the errors as skipped (0 for no limit)")
+    public Long maxFileSize = 0L;
+
+    @Parameter(names = {"--parser-cache-limit"}, description = "Maximum number of DFA states kept by the parser before its cache is dropped (0 for no limit)")
+    public Long parserCacheLimit = JSParser.DEFAULT_CACHE_LIMIT;
+
+    @Parameter(names = {"--parse-timeout"}, description = "Milliseconds a single file may take to be parsed before it is skipped (0 for no limit)")
+    public Long parseTimeout = JSParser.DEFAULT_TIMEOUT;
+
+    @Parameter(names = {"--max-tokens"}, description = "Files with more tokens than this are skipped (0 for no limit)")
+    public Long maxTokens = 0L;
+
+    @Parameter(names = {"--parser-cache-per-project"}, description = "Drop the parser cache after each project is traversed, unless other projects are still running")
+    public boolean parserCachePerProject = false;
+
+    @Parameter(names = {"--mode"}, description = "PARSER (default) or LEXER, which only counts tokens: several times faster, but the columns that need a parse are reported as NA")
+    public Mode mode = Mode.PARSER;
+
+    @Parameter(names = {"--generated"}, description = "What to do with generated and minified files: PARSE them as any other (default), COUNT them as files without parsing, or SKIP them")
+    public GeneratedPolicy generated = GeneratedPolicy.PARSE;
+
+    @Parameter(names = {"-f", "--format"}, description = "The format of the project reports: CSV or COLUMNAR (binary, one typed column per metric)")
+    public ReportFormat format = ReportFormat.CSV;
+
     @Parameter(names = {"-h", "--help"}, help = true, description = "Show help")
     private boolean help;
 }
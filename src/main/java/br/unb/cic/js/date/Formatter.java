@@ -1,7 +1,31 @@
 package br.unb.cic.js.date;
 
-import java.text.SimpleDateFormat;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
 
+/**
+ * Formats and parses the dd-mm-yyyy dates of the arguments and of the reports, in the time zone of the machine. The
+ * formatters are immutable, so the lanes collecting commit groups at the same time share them.
+ */
 public class Formatter {
-    public static final SimpleDateFormat format = new SimpleDateFormat("dd-MM-yyyy");
+    private static final DateTimeFormatter format = DateTimeFormatter.ofPattern("dd-MM-yyyy").withZone(ZoneId.systemDefault());
+
+    // one or two digits for the day and the month, like the arguments were always accepted
+    private static final DateTimeFormatter parser = DateTimeFormatter.ofPattern("d-M-yyyy");
+
+    public static String format(Date date) {
+        return format.format(date.toInstant());
+    }
+
+    public static Date parse(String date) throws ParseException {
+        try {
+            return Date.from(LocalDate.parse(date, parser).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException ex) {
+            throw new ParseException(ex.getMessage(), ex.getErrorIndex());
+        }
+    }
 }
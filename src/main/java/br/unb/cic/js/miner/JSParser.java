@@ -1,30 +1,410 @@
 package br.unb.cic.js.miner;
 
+import br.unb.cic.js.miner.metrics.MetricVector;
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parses javascript files. A single instance may be shared by several threads, and it owns the prediction caches (the
+ * DFA built by ANTLR while parsing) of every lexer and parser it creates, instead of the static ones of the generated
+ * classes, which grow without limit. Once the number of DFA states crosses a limit the caches are dropped and warmed
+ * up again.
+ * <p>
+ * A parse may also be given a budget of wall time and of tokens. It is checked by the lexer and by the prediction of
+ * the parser as they go, and once it runs out the parse is abandoned with a {@link ParseBudgetException}, so a single
+ * pathological file can't hold a thread for minutes.
+ */
 public class JSParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(JSParser.class);
+
+    // Default maximum number of DFA states (lexer and parser) kept in the caches
+    public static final long DEFAULT_CACHE_LIMIT = 250_000;
+
+    // Default wall time (in milliseconds) a file may take to be parsed
+    public static final long DEFAULT_TIMEOUT = 60_000;
+
+    // How many tokens or predictions happen between two checks of the clock
+    private static final int CLOCK_INTERVAL = 256;
+
+    // Bytes decoded at a time when reading from a channel
+    private static final int DECODE_BUFFER = 1 << 14;
+
+    // How many files are parsed between two checks of the cache size
+    private static final int CHECK_INTERVAL = 64;
+
+    private final long cacheLimit;
+
+    // Budget of each parse, 0 for no limit
+    private final long timeout;
+    private final long tokenLimit;
+
+    private final AtomicLong parsed = new AtomicLong(0);
+
+    private volatile Cache cache = new Cache();
+
+    private final ThreadLocal<Session> sessions = ThreadLocal.withInitial(Session::new);
+
+    public JSParser() {
+        this(DEFAULT_CACHE_LIMIT, 0, 0);
+    }
+
+    /**
+     * @param cacheLimit The maximum number of DFA states kept in the caches, 0 disables the limit
+     * @param timeout    The milliseconds a single file may take to be parsed, 0 disables the limit
+     * @param tokenLimit The maximum number of tokens of a single file, 0 disables the limit
+     */
+    public JSParser(long cacheLimit, long timeout, long tokenLimit) {
+        this.cacheLimit = cacheLimit;
+        this.timeout = timeout;
+        this.tokenLimit = tokenLimit;
+    }
+
     public JavaScriptParser.ProgramContext parse(String content) throws Exception {
-    	CharStream charStream = CharStreams.fromString(content);
-        ExceptionBasedErrorListener listener = new ExceptionBasedErrorListener();
-        JavaScriptLexer lexer = configureLexer(charStream, listener);
-        JavaScriptParser parser = configureParser(lexer, listener);
+        long start = System.nanoTime();
+
+        return parse(CharStreams.fromString(content), start);
+    }
+
+    /**
+     * Parses bytes (e.g. a mapped file or the cached content of a git blob) decoded as UTF-8 straight into the code
+     * points of the char stream, the bytes are neither copied as a whole nor turned into a string.
+     */
+    public JavaScriptParser.ProgramContext parse(ByteBuffer content) throws Exception {
+        return parse(new BufferChannel(content), content.remaining());
+    }
+
+    /**
+     * Parses the content of a channel decoded as UTF-8, its size (in bytes) sizes the code point buffer up front.
+     */
+    public JavaScriptParser.ProgramContext parse(ReadableByteChannel content, long size) throws Exception {
+        long start = System.nanoTime();
+
+        return parse(CharStreams.fromChannel(content, StandardCharsets.UTF_8, DECODE_BUFFER, CodingErrorAction.REPLACE, IntStream.UNKNOWN_SOURCE_NAME, size), start);
+    }
+
+    /**
+     * Counts the metrics of a file from its tokens alone, without parsing it (see {@link Mode#LEXER}).
+     */
+    public MetricVector lex(String content) {
+        long start = System.nanoTime();
+
+        return lex(CharStreams.fromString(content), start);
+    }
+
+    /**
+     * Counts the metrics of bytes decoded as UTF-8 from their tokens alone.
+     */
+    public MetricVector lex(ByteBuffer content) throws Exception {
+        return lex(new BufferChannel(content), content.remaining());
+    }
+
+    /**
+     * Counts the metrics of the content of a channel decoded as UTF-8 from its tokens alone.
+     */
+    public MetricVector lex(ReadableByteChannel content, long size) throws Exception {
+        long start = System.nanoTime();
+
+        return lex(CharStreams.fromChannel(content, StandardCharsets.UTF_8, DECODE_BUFFER, CodingErrorAction.REPLACE, IntStream.UNKNOWN_SOURCE_NAME, size), start);
+    }
+
+    /**
+     * Returns the nanoseconds the last parse of the calling thread spent decoding and lexing its content.
+     */
+    public long lexTime() {
+        return sessions.get().lexTime;
+    }
+
+    /**
+     * Returns the nanoseconds the last parse of the calling thread spent parsing its tokens.
+     */
+    public long parseTime() {
+        return sessions.get().parseTime;
+    }
+
+    /**
+     * Returns the number of DFA states currently cached by the lexer and the parser.
+     */
+    public long cacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Drops the prediction caches. Parses already running keep the caches they started with, the following ones
+     * start over with empty caches.
+     */
+    public void clearCache() {
+        cache = new Cache();
+    }
+
+    /**
+     * Parses in two stages: first with the faster SLL prediction, bailing out on the first error, and only if it
+     * fails with the full LL prediction. SLL fails on every invalid input but also on a few valid ones, so the second
+     * stage decides (and reports) whether the content is really invalid.
+     */
+    private JavaScriptParser.ProgramContext parse(CharStream charStream, long start) {
+        Cache current = cache;
+        Session session = sessions.get().reset(charStream, current);
+
+        session.budget.start(start, timeout, tokenLimit);
+
+        try {
+            // lexer errors don't depend on the prediction mode, so they are reported before parsing
+            session.tokens.fill();
+
+            session.lexTime = System.nanoTime() - start;
+
+            try {
+                return session.parser.program();
+            } catch (ParseCancellationException ex) {
+                session.tokens.seek(0);
+                session.parser.reset();
+
+                session.parser.addErrorListener(session.listener);
+                session.parser.setErrorHandler(new DefaultErrorStrategy());
+                session.parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+
+                return session.parser.program();
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+
+            if (session.lexTime == 0) {
+                session.lexTime = elapsed;
+            } else {
+                session.parseTime = elapsed - session.lexTime;
+            }
+
+            if (cacheLimit > 0 && parsed.incrementAndGet() % CHECK_INTERVAL == 0) {
+                enforceLimit(current);
+            }
+        }
+    }
+
+    private MetricVector lex(CharStream charStream, long start) {
+        Cache current = cache;
+        Session session = sessions.get().reset(charStream, current);
+
+        session.budget.start(start, timeout, tokenLimit);
+
+        try {
+            return TokenCounter.count(session.source);
+        } finally {
+            session.lexTime = System.nanoTime() - start;
+
+            if (cacheLimit > 0 && parsed.incrementAndGet() % CHECK_INTERVAL == 0) {
+                enforceLimit(current);
+            }
+        }
+    }
+
+    private void enforceLimit(Cache current) {
+        long size = current.size();
+
+        // the check on the instance prevents two threads from clearing a cache that was already replaced
+        if (size > cacheLimit && cache == current) {
+            logger.info("clearing the parser cache with {} DFA states (limit of {})", size, cacheLimit);
+
+            clearCache();
+        }
+    }
+
+    /**
+     * The lexer, token stream and parser of a thread. They are created once and pointed to a new input on every
+     * parse, instead of being allocated for each file.
+     */
+    private static final class Session {
+        final ExceptionBasedErrorListener listener = new ExceptionBasedErrorListener();
+
+        final Budget budget = new Budget();
+
+        final JavaScriptLexer lexer = new JavaScriptLexer(CharStreams.fromString(""));
+        final BudgetTokenSource source = new BudgetTokenSource(lexer, budget);
+        final CommonTokenStream tokens = new CommonTokenStream(source);
+        final JavaScriptParser parser = new JavaScriptParser(tokens);
+
+        // The caches the interpreters of this session were built on
+        Cache cache;
+
+        // Nanoseconds spent by the last parse
+        long lexTime;
+        long parseTime;
+
+        Session() {
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(listener);
+        }
+
+        Session reset(CharStream stream, Cache current) {
+            if (cache != current) {
+                lexer.setInterpreter(new LexerATNSimulator(lexer, lexer.getATN(), current.lexer, current.lexerContexts));
+                parser.setInterpreter(new BudgetATNSimulator(parser, current.parser, current.parserContexts, budget));
+                cache = current;
+            }
+
+            // also resets the state kept by JavaScriptLexerBase (strict mode scopes, template depth and last token)
+            lexer.setInputStream(stream);
+            tokens.setTokenSource(source);
+            parser.setTokenStream(tokens);
+
+            parser.removeErrorListeners();
+            parser.setErrorHandler(new BailErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
 
-        return parser.program();
+            lexTime = 0;
+            parseTime = 0;
+
+            return this;
+        }
+    }
+
+    /**
+     * The wall time and tokens left to the parse of a session. Reading the clock isn't free, so it is only checked
+     * every few tokens and predictions.
+     */
+    private static final class Budget {
+        long deadline;
+        long timeout;
+        long tokenLimit;
+
+        long tokens;
+        int ticks;
+
+        void start(long start, long timeout, long tokenLimit) {
+            this.deadline = timeout > 0 ? start + timeout * 1_000_000 : Long.MAX_VALUE;
+            this.timeout = timeout;
+            this.tokenLimit = tokenLimit;
+            this.tokens = 0;
+            this.ticks = 0;
+        }
+
+        void token() {
+            if (tokenLimit > 0 && ++tokens > tokenLimit) {
+                throw ParseBudgetException.tooManyTokens("more than " + tokenLimit + " tokens");
+            }
+
+            tick();
+        }
+
+        void tick() {
+            if (deadline != Long.MAX_VALUE && ++ticks % CLOCK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                throw ParseBudgetException.timeout("took more than " + timeout + "ms to parse");
+            }
+        }
+    }
+
+    /**
+     * Hands the tokens of the lexer to the token stream, charging each one to the budget.
+     */
+    private static final class BudgetTokenSource implements TokenSource {
+        private final Lexer lexer;
+        private final Budget budget;
+
+        BudgetTokenSource(Lexer lexer, Budget budget) {
+            this.lexer = lexer;
+            this.budget = budget;
+        }
+
+        @Override
+        public Token nextToken() {
+            budget.token();
+
+            return lexer.nextToken();
+        }
+
+        @Override
+        public int getLine() {
+            return lexer.getLine();
+        }
+
+        @Override
+        public int getCharPositionInLine() {
+            return lexer.getCharPositionInLine();
+        }
+
+        @Override
+        public CharStream getInputStream() {
+            return lexer.getInputStream();
+        }
+
+        @Override
+        public String getSourceName() {
+            return lexer.getSourceName();
+        }
+
+        @Override
+        public void setTokenFactory(TokenFactory<?> factory) {
+            lexer.setTokenFactory(factory);
+        }
+
+        @Override
+        public TokenFactory<?> getTokenFactory() {
+            return lexer.getTokenFactory();
+        }
     }
 
-    private JavaScriptParser configureParser(JavaScriptLexer lexer, ExceptionBasedErrorListener listener) {
-        JavaScriptParser parser = new JavaScriptParser(new CommonTokenStream(lexer));
-        parser.removeErrorListeners();
-        parser.addErrorListener(listener);
-        return parser;
+    /**
+     * Checks the budget on every decision of the parser, where an ambiguous input spends its time.
+     */
+    private static final class BudgetATNSimulator extends ParserATNSimulator {
+        private final Budget budget;
+
+        BudgetATNSimulator(Parser parser, DFA[] dfa, PredictionContextCache contexts, Budget budget) {
+            super(parser, parser.getATN(), dfa, contexts);
+            this.budget = budget;
+        }
+
+        @Override
+        public int adaptivePredict(TokenStream input, int decision, ParserRuleContext outerContext) {
+            budget.tick();
+
+            return super.adaptivePredict(input, decision, outerContext);
+        }
     }
 
-    private JavaScriptLexer configureLexer(CharStream stream, ExceptionBasedErrorListener listener) {
-        JavaScriptLexer lexer = new JavaScriptLexer(stream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(new ExceptionBasedErrorListener());
-        return lexer;
+    /**
+     * The DFA of every decision of the lexer and of the parser, with their prediction context caches.
+     */
+    private static final class Cache {
+        final DFA[] lexer = decisions(JavaScriptLexer._ATN);
+        final DFA[] parser = decisions(JavaScriptParser._ATN);
+
+        final PredictionContextCache lexerContexts = new PredictionContextCache();
+        final PredictionContextCache parserContexts = new PredictionContextCache();
+
+        long size() {
+            return states(lexer) + states(parser);
+        }
+
+        private static DFA[] decisions(ATN atn) {
+            DFA[] dfa = new DFA[atn.getNumberOfDecisions()];
+
+            for (int i = 0; i < dfa.length; i++) {
+                dfa[i] = new DFA(atn.getDecisionState(i), i);
+            }
+
+            return dfa;
+        }
+
+        private static long states(DFA[] dfa) {
+            long total = 0;
+
+            for (DFA d : dfa) {
+                total += d.states.size();
+            }
+
+            return total;
+        }
     }
 
     static class ExceptionBasedErrorListener extends BaseErrorListener {
@@ -33,5 +413,38 @@ public class JSParser {
             throw new ParseCancellationException(String.format("line: %d : %d - %s ", line, charPositionInLine, msg));
         }
     }
-}
 
+    /**
+     * Reads a byte buffer as a channel, so it can be decoded by {@link CharStreams} a chunk at a time.
+     */
+    private static final class BufferChannel implements ReadableByteChannel {
+        private final ByteBuffer buffer;
+
+        BufferChannel(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            final int length = Math.min(destination.remaining(), buffer.remaining());
+
+            destination.put(buffer.slice().limit(length));
+            buffer.position(buffer.position() + length);
+
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,254 +1,118 @@
 package br.unb.cic.js.miner;
 
-import br.unb.cic.js.miner.JavaScriptParser.*;
-import lombok.Getter;
-import lombok.val;
-
-import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
-
-@Getter
+import br.unb.cic.js.miner.detectors.Detectors;
+import br.unb.cic.js.miner.metrics.MetricVector;
+import org.antlr.v4.runtime.tree.RuleNode;
+
+/**
+ * Counts the language features of a single file. A visitor isn't thread safe, each file gets its own instance and the
+ * counters of several files are summed afterwards (see {@link br.unb.cic.js.miner.metrics.MetricVector}).
+ * <p>
+ * The features are counted by the registered detectors, this visitor is an adapter over them: visiting a tree walks it
+ * once with {@link Detectors#measure} and the getters read the columns of the built-in detectors.
+ */
 public class JSVisitor extends JavaScriptParserBaseVisitor<Void> {
 
-	private static final String THEN = "then";
-	private static final String ALL = "all";
-	private static final String PROMISE = "Promise";
-
-	AtomicInteger totalArrowDeclarations = new AtomicInteger(0);
-	AtomicInteger totalAsyncDeclarations = new AtomicInteger(0);
-	AtomicInteger totalAwaitDeclarations = new AtomicInteger(0);
-	AtomicInteger totalLetDeclarations = new AtomicInteger(0);
-	AtomicInteger totalConstDeclaration = new AtomicInteger(0);
-	AtomicInteger totalClassDeclarations = new AtomicInteger(0);
-	AtomicInteger totalYieldDeclarations = new AtomicInteger(0);
-	AtomicInteger totalExportDeclarations = new AtomicInteger(0);
-	AtomicInteger totalImportStatements = new AtomicInteger(0);
-	AtomicInteger totalRestStatements = new AtomicInteger(0);
-	AtomicInteger totalNewPromises = new AtomicInteger(0);
-	AtomicInteger totalPromiseAllAndThenIdiom = new AtomicInteger(0);
-	AtomicInteger totalArrayDestructuring = new AtomicInteger(0);
-	AtomicInteger totalObjectDestructuring = new AtomicInteger(0);
-	AtomicInteger totalDefaultParameters = new AtomicInteger(0);
-	AtomicInteger totalSpreadArguments = new AtomicInteger(0);
-	AtomicInteger totalStatements = new AtomicInteger(0);
+	private static final int ARROW = MetricVector.column("arrow-function-declarations");
+	private static final int ASYNC = MetricVector.column("async-declarations");
+	private static final int AWAIT = MetricVector.column("await-declarations");
+	private static final int LET = MetricVector.column("let-declarations");
+	private static final int CONST = MetricVector.column("const-declarations");
+	private static final int CLASS = MetricVector.column("class-declarations");
+	private static final int YIELD = MetricVector.column("yield-declarations");
+	private static final int EXPORT = MetricVector.column("export-declarations");
+	private static final int IMPORT = MetricVector.column("import-statements");
+	private static final int REST = MetricVector.column("rest-statements");
+	private static final int PROMISE = MetricVector.column("promise-declarations");
+	private static final int ALL_AND_THEN = MetricVector.column("promise-all-and-then");
+	private static final int ARRAY_DESTRUCTURING = MetricVector.column("array-destructuring");
+	private static final int OBJECT_DESTRUCTURING = MetricVector.column("object-destructuring");
+	private static final int DEFAULT_PARAMETERS = MetricVector.column("default-parameters");
+	private static final int SPREAD = MetricVector.column("spread-arguments");
+	private static final int STATEMENTS = MetricVector.column("statements");
 
-	@Override
-	public Void visitStatement(StatementContext ctx) {
-		val statements = new ArrayList<Boolean>();
-
-		statements.add(ctx.variableStatement() != null);
-		statements.add(ctx.importStatement() != null);
-		statements.add(ctx.importStatement() != null);
-		statements.add(ctx.block() != null);
-		statements.add(ctx.exportStatement() != null);
-		statements.add(ctx.emptyStatement_() != null);
-		statements.add(ctx.classDeclaration() != null);
-		statements.add(ctx.expressionStatement() != null);
-		statements.add(ctx.ifStatement() != null);
-		statements.add(ctx.iterationStatement() != null);
-		statements.add(ctx.continueStatement() != null);
-		statements.add(ctx.breakStatement() != null);
-		statements.add(ctx.returnStatement() != null);
-		statements.add(ctx.yieldStatement() != null);
-		statements.add(ctx.withStatement() != null);
-		statements.add(ctx.labelledStatement() != null);
-		statements.add(ctx.switchStatement()!= null);
-		statements.add(ctx.throwStatement() != null);
-		statements.add(ctx.tryStatement() != null);
-		statements.add(ctx.debuggerStatement() != null);
-		statements.add(ctx.functionDeclaration() != null);
-
-		if (statements.stream().reduce((m, n) -> m || n).orElse(false)) {
-			totalStatements.incrementAndGet();
-		}
-
-		return super.visitStatement(ctx);
-	}
-
-	@Override
-	public Void visitStatementList(StatementListContext ctx) {
-		if (ctx.statement() != null) {
-			totalStatements.incrementAndGet();
-		}
-		return super.visitStatementList(ctx);
-	}
+	private final MetricVector totals = new MetricVector();
 
+	// every visit method of the base visitor ends up here, so any node accepting this visitor is measured as a whole
 	@Override
-	public Void visitFunctionDeclaration(FunctionDeclarationContext ctx) {
-		if (ctx.Async() != null) {
-			totalAsyncDeclarations.incrementAndGet();
-		}
-		return super.visitFunctionDeclaration(ctx);
-	}
+	public Void visitChildren(RuleNode node) {
+		totals.add(Detectors.measure(node));
 
-	@Override
-	public Void visitArrowFunction(ArrowFunctionContext ctx) {
-		totalArrowDeclarations.incrementAndGet();
-		if (ctx.Async() != null) {
-			totalAsyncDeclarations.incrementAndGet();
-		}
-		return super.visitArrowFunction(ctx);
+		return null;
 	}
 
-	@Override
-	public Void visitAnonymousFunctionDecl(AnonymousFunctionDeclContext ctx) {
-		totalArrowDeclarations.incrementAndGet();
-		if (ctx.Async() != null) {
-			totalAsyncDeclarations.incrementAndGet();
-		}
-		return super.visitAnonymousFunctionDecl(ctx);
+	/**
+	 * Returns a copy of the counters of every column, summed over the trees visited.
+	 */
+	public MetricVector vector() {
+		return new MetricVector(totals.values());
 	}
 
-	@Override
-	public Void visitFunctionProperty(FunctionPropertyContext ctx) {
-		if (ctx.Async() != null) {
-			totalAsyncDeclarations.incrementAndGet();
-		}
-		return super.visitFunctionProperty(ctx);
+	public int getTotalArrowDeclarations() {
+		return totals.get(ARROW);
 	}
 
-	@Override
-	public Void visitYieldExpression(YieldExpressionContext ctx) {
-		if (ctx.yieldStatement() != null) {
-			totalYieldDeclarations.incrementAndGet();
-		}
-		return super.visitYieldExpression(ctx);
+	public int getTotalAsyncDeclarations() {
+		return totals.get(ASYNC);
 	}
 
-	@Override
-	public Void visitClassDeclaration(ClassDeclarationContext ctx) {
-		if (ctx.Class() != null) {
-			totalClassDeclarations.incrementAndGet();
-		}
-		return super.visitClassDeclaration(ctx);
+	public int getTotalAwaitDeclarations() {
+		return totals.get(AWAIT);
 	}
 
-	@Override
-	public Void visitExportDeclaration(ExportDeclarationContext ctx) {
-		if (ctx.Export() != null) {
-			totalExportDeclarations.incrementAndGet();
-		}
-		return super.visitExportDeclaration(ctx);
+	public int getTotalLetDeclarations() {
+		return totals.get(LET);
 	}
 
-	@Override
-	public Void visitImportExpression(ImportExpressionContext ctx) {
-		if (ctx.Import() != null) {
-			totalImportStatements.incrementAndGet();
-		}
-		return super.visitImportExpression(ctx);
+	public int getTotalConstDeclaration() {
+		return totals.get(CONST);
 	}
 
-	@Override
-	public Void visitImportStatement(ImportStatementContext ctx) {
-		if (ctx.Import() != null) {
-			totalImportStatements.incrementAndGet();
-		}
-		return super.visitImportStatement(ctx);
+	public int getTotalClassDeclarations() {
+		return totals.get(CLASS);
 	}
 
-	@Override
-	public Void visitLastFormalParameterArg(LastFormalParameterArgContext ctx) {
-		if (ctx.Ellipsis() != null) {
-			totalRestStatements.incrementAndGet();
-		}
-		return super.visitLastFormalParameterArg(ctx);
+	public int getTotalYieldDeclarations() {
+		return totals.get(YIELD);
 	}
 
-	@Override
-	public Void visitVarModifier(VarModifierContext ctx) {
-		if (ctx.Const() != null) {
-			totalConstDeclaration.incrementAndGet();
-		}
-		if (ctx.let_() != null) {
-			totalLetDeclarations.incrementAndGet();
-		}
-		return super.visitVarModifier(ctx);
+	public int getTotalExportDeclarations() {
+		return totals.get(EXPORT);
 	}
 
-	@Override
-	public Void visitAwaitExpression(AwaitExpressionContext ctx) {
-		if (ctx.Await() != null) {
-			totalAwaitDeclarations.incrementAndGet();
-		}
-		return super.visitAwaitExpression(ctx);
+	public int getTotalImportStatements() {
+		return totals.get(IMPORT);
 	}
 
-	@Override
-	public Void visitIdentifier(IdentifierContext ctx) {
-		if (ctx.Async() != null) {
-			totalAsyncDeclarations.incrementAndGet();
-		}
-		return super.visitIdentifier(ctx);
+	public int getTotalRestStatements() {
+		return totals.get(REST);
 	}
 
-	@Override
-	public Void visitMethodDefinition(MethodDefinitionContext ctx) {
-		if(ctx.Async() != null) {
-			totalAsyncDeclarations.incrementAndGet();
-		}
-		return super.visitMethodDefinition(ctx);
+	public int getTotalNewPromises() {
+		return totals.get(PROMISE);
 	}
 
-	@Override
-	public Void visitNewExpression(NewExpressionContext ctx) {
-		if (ctx.singleExpression() != null && ctx.singleExpression().getText().equals(PROMISE)) {
-			totalNewPromises.incrementAndGet();
-		}
-		if (ctx.identifier() != null && ctx.identifier().Identifier() != null && 
-			ctx.identifier().Identifier().getText().equals(PROMISE)) {
-			totalNewPromises.incrementAndGet();
-		}
-
-		return super.visitNewExpression(ctx);
+	public int getTotalPromiseAllAndThenIdiom() {
+		return totals.get(ALL_AND_THEN);
 	}
 
-	@Override
-	public Void visitArgumentsExpression(ArgumentsExpressionContext ctx) {
-		if (ctx.singleExpression().getText().contains(PROMISE) &&
-				ctx.singleExpression().getText().contains(ALL) &&
-				ctx.singleExpression().getText().contains(THEN)) {
-			totalPromiseAllAndThenIdiom.incrementAndGet();
-		}
-		return super.visitArgumentsExpression(ctx);
+	public int getTotalArrayDestructuring() {
+		return totals.get(ARRAY_DESTRUCTURING);
 	}
 
-	@Override
-	public Void visitAssignmentExpression(AssignmentExpressionContext ctx) {
-		if (ctx.singleExpression().get(0) instanceof ArrayLiteralExpressionContext) {
-			totalArrayDestructuring.incrementAndGet();
-		}else if(ctx.singleExpression().get(0) instanceof ObjectLiteralExpressionContext) {
-			totalObjectDestructuring.incrementAndGet();
-		}
-		return super.visitAssignmentExpression(ctx);
+	public int getTotalObjectDestructuring() {
+		return totals.get(OBJECT_DESTRUCTURING);
 	}
 
-	@Override
-	public Void visitVariableDeclaration(VariableDeclarationContext ctx) {
-		if(ctx.singleExpression() != null && !ctx.assignable().isEmpty()) {
-			if (ctx.assignable().arrayLiteral() != null) {
-				totalArrayDestructuring.incrementAndGet();
-			}
-			else if (ctx.assignable().objectLiteral() != null) {
-				totalObjectDestructuring.incrementAndGet();
-			}
-		}
-		return super.visitVariableDeclaration(ctx);
+	public int getTotalDefaultParameters() {
+		return totals.get(DEFAULT_PARAMETERS);
 	}
 
-	@Override
-	public Void visitFormalParameterArg(FormalParameterArgContext ctx) {
-		if (ctx.singleExpression() != null) {
-			totalDefaultParameters.incrementAndGet();
-		}
-		return super.visitFormalParameterArg(ctx);
+	public int getTotalSpreadArguments() {
+		return totals.get(SPREAD);
 	}
 
-	@Override
-	public Void visitArgument(ArgumentContext ctx) {
-		if (ctx.Ellipsis() != null) {
-			totalSpreadArguments.incrementAndGet();
-		}
-		return super.visitArgument(ctx);
+	public int getTotalStatements() {
+		return totals.get(STATEMENTS);
 	}
 }
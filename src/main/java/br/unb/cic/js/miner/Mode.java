@@ -0,0 +1,33 @@
+package br.unb.cic.js.miner;
+
+import br.unb.cic.js.miner.metrics.MetricVector;
+
+/**
+ * How the files are measured. The lexer mode skips the parser altogether and only fills the columns that can be
+ * counted from the tokens of a file (see {@link TokenCounter}), the others are reported as unavailable.
+ */
+public enum Mode {
+    PARSER(MetricVector.columns),
+    LEXER(TokenCounter.columns);
+
+    // Whether each column of MetricVector is computed by this mode
+    private final boolean[] available = new boolean[MetricVector.columns.length];
+
+    Mode(String[] columns) {
+        for (String column : columns) {
+            for (int i = 0; i < MetricVector.columns.length; i++) {
+                if (MetricVector.columns[i].equals(column)) {
+                    available[i] = true;
+                }
+            }
+        }
+
+        // the generated files are classified by the walker before they are measured
+        available[MetricVector.GENERATED] = true;
+        available[MetricVector.GENERATED_KIB] = true;
+    }
+
+    public boolean available(int column) {
+        return available[column];
+    }
+}
@@ -0,0 +1,21 @@
+package br.unb.cic.js.miner;
+
+/**
+ * Thrown when a file takes longer to parse, or has more tokens, than the budget of the {@link JSParser}. Its message
+ * starts with {@code timeout} or {@code too-many-tokens}, so these files are told apart from the invalid ones in the
+ * errors file. Both depend on the budget of the execution, not only on the file, so they aren't persisted.
+ */
+public class ParseBudgetException extends RuntimeException {
+
+    private ParseBudgetException(String message) {
+        super(message);
+    }
+
+    public static ParseBudgetException timeout(String message) {
+        return new ParseBudgetException("timeout: " + message);
+    }
+
+    public static ParseBudgetException tooManyTokens(String message) {
+        return new ParseBudgetException("too-many-tokens: " + message);
+    }
+}
@@ -0,0 +1,318 @@
+package br.unb.cic.js.miner;
+
+import br.unb.cic.js.miner.metrics.MetricVector;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+
+import java.util.Arrays;
+
+import static br.unb.cic.js.miner.JavaScriptLexer.*;
+
+/**
+ * Counts the metrics of a file that can be told apart from its tokens alone, following the rules of {@link JSVisitor}
+ * with a look at the neighbouring tokens instead of the parse tree. Keywords used as property names ({@code a.class},
+ * {@code {import: 1}}) aren't counted, and an ellipsis is a rest parameter or a spread argument depending on the
+ * parentheses it is in.
+ */
+final class TokenCounter {
+
+    // The columns filled by the counter, every other one needs the parse tree
+    static final String[] columns = {
+            "files",
+            "async-declarations",
+            "await-declarations",
+            "const-declarations",
+            "class-declarations",
+            "let-declarations",
+            "export-declarations",
+            "yield-declarations",
+            "import-statements",
+            "rest-statements",
+            "spread-arguments",
+            "errors",
+    };
+
+    private static final int ASYNC = MetricVector.column("async-declarations");
+    private static final int AWAIT = MetricVector.column("await-declarations");
+    private static final int CONST = MetricVector.column("const-declarations");
+    private static final int CLASS = MetricVector.column("class-declarations");
+    private static final int LET = MetricVector.column("let-declarations");
+    private static final int EXPORT = MetricVector.column("export-declarations");
+    private static final int YIELD = MetricVector.column("yield-declarations");
+    private static final int IMPORT = MetricVector.column("import-statements");
+    private static final int REST = MetricVector.column("rest-statements");
+    private static final int SPREAD = MetricVector.column("spread-arguments");
+
+    // Kinds of the open brackets, ellipses are only counted directly inside parentheses
+    private static final int GROUP = 0;
+    private static final int CALL = 1;
+    private static final int PARAMETERS = 2;
+    private static final int OTHER = 3;
+
+    private int[] types = new int[1024];
+    private int length;
+
+    private int[] kinds = new int[64];
+    private int[] ellipses = new int[64];
+    private int depth;
+
+    private TokenCounter() {
+    }
+
+    /**
+     * Reads every token of a source and counts them.
+     */
+    static MetricVector count(TokenSource source) {
+        return new TokenCounter().read(source).count();
+    }
+
+    private TokenCounter read(TokenSource source) {
+        for (Token token = source.nextToken(); token.getType() != Token.EOF; token = source.nextToken()) {
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+
+            if (length == types.length) {
+                types = Arrays.copyOf(types, length * 2);
+            }
+
+            types[length++] = token.getType();
+        }
+
+        return this;
+    }
+
+    private MetricVector count() {
+        final int[] values = new int[MetricVector.columns.length];
+
+        values[MetricVector.FILES] = 1;
+
+        for (int i = 0; i < length; i++) {
+            final int type = types[i];
+
+            switch (type) {
+                case Const:
+                    if (keyword(i)) {
+                        values[CONST]++;
+                    }
+                    break;
+                case StrictLet:
+                case NonStrictLet:
+                    // let is an identifier unless it declares something
+                    if (keyword(i) && declares(i)) {
+                        values[LET]++;
+                    }
+                    break;
+                case Async:
+                    // like the visitor, which counts async identifiers too
+                    values[ASYNC]++;
+                    break;
+                case Await:
+                    if (keyword(i) && at(i - 1) != For) {
+                        values[AWAIT]++;
+                    }
+                    break;
+                case Yield:
+                    if (keyword(i)) {
+                        values[YIELD]++;
+                    }
+                    break;
+                case Class:
+                    if (keyword(i) && classDeclaration(i)) {
+                        values[CLASS]++;
+                    }
+                    break;
+                case Export:
+                    if (keyword(i) && exportDeclaration(i)) {
+                        values[EXPORT]++;
+                    }
+                    break;
+                case Import:
+                    // import.meta isn't an import
+                    if (keyword(i) && at(i + 1) != Dot) {
+                        values[IMPORT]++;
+                    }
+                    break;
+                case OpenParen:
+                    push(parenthesis(i));
+                    break;
+                case OpenBracket:
+                case OpenBrace:
+                case TemplateStringStartExpression:
+                    push(OTHER);
+                    break;
+                case CloseParen:
+                    close(i, values);
+                    break;
+                case CloseBracket:
+                case CloseBrace:
+                case TemplateCloseBrace:
+                    pop();
+                    break;
+                case Ellipsis:
+                    if (depth > 0) {
+                        ellipses[depth - 1]++;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return new MetricVector(values);
+    }
+
+    private int at(int i) {
+        return i >= 0 && i < length ? types[i] : Token.EOF;
+    }
+
+    /**
+     * Returns if the token at i is used as a keyword, not as the name of a property.
+     */
+    private boolean keyword(int i) {
+        final int previous = at(i - 1);
+
+        return previous != Dot && previous != QuestionMarkDot && at(i + 1) != Colon;
+    }
+
+    private boolean declares(int i) {
+        final int next = at(i + 1);
+
+        // out of strict mode the grammar reads for (let [a, b] of c) as an expression, indexing a variable named let
+        if (at(i) == NonStrictLet && next == OpenBracket && at(i - 1) == OpenParen && at(i - 2) == For) {
+            return false;
+        }
+
+        return next == Identifier || next == OpenBracket || next == OpenBrace || next == Yield || next == Async || next == Await;
+    }
+
+    /**
+     * Class declarations have a name and don't follow an operator (or keyword) expecting an expression, the other
+     * classes are expressions. Statements may end without a semicolon, so anything else may precede a declaration.
+     */
+    private boolean classDeclaration(int i) {
+        final int next = at(i + 1);
+
+        return !expected(at(i - 1)) && next != OpenBrace && next != Extends;
+    }
+
+    /**
+     * Returns if a token must be followed by an expression.
+     */
+    private static boolean expected(int type) {
+        switch (type) {
+            case OpenParen:
+            case OpenBracket:
+            case Comma:
+            case Return:
+            case Throw:
+            case Extends:
+            case New:
+            case Typeof:
+            case Void:
+            case Delete:
+            case Instanceof:
+            case In:
+            case Case:
+            case Yield:
+            case Await:
+                return true;
+            case PlusPlus:
+            case MinusMinus:
+                return false;
+            default:
+                // the operators, from = to =>
+                return type >= Assign && type <= ARROW;
+        }
+    }
+
+    /**
+     * Exports of a value (export default followed by an expression) aren't export declarations.
+     */
+    private boolean exportDeclaration(int i) {
+        if (at(i + 1) != Default) {
+            return true;
+        }
+
+        int j = i + 2;
+
+        if (at(j) == Class) {
+            return at(j + 1) != OpenBrace && at(j + 1) != Extends;
+        }
+
+        if (at(j) == Async) {
+            j++;
+        }
+
+        if (at(j) != Function_) {
+            return at(j) == Var || at(j) == Const || at(j) == StrictLet || at(j) == NonStrictLet;
+        }
+
+        j++;
+
+        if (at(j) == Multiply) {
+            j++;
+        }
+
+        return at(j) != OpenParen;
+    }
+
+    /**
+     * Tells the parameters of a function and the arguments of a call apart from a plain group.
+     */
+    private int parenthesis(int i) {
+        final int previous = at(i - 1);
+
+        if (previous == Function_ || previous == Multiply && at(i - 2) == Function_ || at(i - 2) == Function_ || at(i - 2) == Multiply && at(i - 3) == Function_) {
+            return PARAMETERS;
+        }
+
+        if (previous == Identifier || previous == CloseParen || previous == CloseBracket || previous == Super || previous == Import
+                || at(i - 2) == Dot || at(i - 2) == QuestionMarkDot) {
+            return CALL;
+        }
+
+        return GROUP;
+    }
+
+    private void close(int i, int[] values) {
+        if (depth == 0) {
+            return;
+        }
+
+        final int kind = kinds[depth - 1];
+        final int count = ellipses[depth - 1];
+
+        pop();
+
+        if (count == 0) {
+            return;
+        }
+
+        final int next = at(i + 1);
+
+        // the parameters of arrow functions and methods are only known by what follows them
+        if (kind == PARAMETERS || next == ARROW || next == OpenBrace && kind == CALL) {
+            values[REST] += count;
+        } else if (kind == CALL) {
+            values[SPREAD] += count;
+        }
+    }
+
+    private void push(int kind) {
+        if (depth == kinds.length) {
+            kinds = Arrays.copyOf(kinds, depth * 2);
+            ellipses = Arrays.copyOf(ellipses, depth * 2);
+        }
+
+        kinds[depth] = kind;
+        ellipses[depth] = 0;
+        depth++;
+    }
+
+    private void pop() {
+        if (depth > 0) {
+            depth--;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package br.unb.cic.js.miner.detectors;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import static br.unb.cic.js.miner.JavaScriptParser.*;
+
+/**
+ * Counts the async functions, methods and arrows (and any other use of the async identifier) and the await expressions.
+ */
+public final class AsyncDetector implements Detector {
+
+    private static final int ASYNC = 0;
+    private static final int AWAIT = 1;
+
+    @Override
+    public String[] columns() {
+        return new String[]{"async-declarations", "await-declarations"};
+    }
+
+    @Override
+    public int[] rules() {
+        return new int[]{RULE_functionDeclaration, RULE_anonymousFunction, RULE_propertyAssignment, RULE_methodDefinition, RULE_identifier, RULE_singleExpression};
+    }
+
+    @Override
+    public void visit(ParserRuleContext node, Counts counts) {
+        if (async(node)) {
+            counts.increment(ASYNC);
+        }
+
+        if (node instanceof AwaitExpressionContext && ((AwaitExpressionContext) node).Await() != null) {
+            counts.increment(AWAIT);
+        }
+    }
+
+    private static boolean async(ParserRuleContext node) {
+        if (node instanceof FunctionDeclarationContext) {
+            return ((FunctionDeclarationContext) node).Async() != null;
+        }
+
+        if (node instanceof ArrowFunctionContext) {
+            return ((ArrowFunctionContext) node).Async() != null;
+        }
+
+        if (node instanceof AnonymousFunctionDeclContext) {
+            return ((AnonymousFunctionDeclContext) node).Async() != null;
+        }
+
+        if (node instanceof FunctionPropertyContext) {
+            return ((FunctionPropertyContext) node).Async() != null;
+        }
+
+        if (node instanceof MethodDefinitionContext) {
+            return ((MethodDefinitionContext) node).Async() != null;
+        }
+
+        if (node instanceof IdentifierContext) {
+            return ((IdentifierContext) node).Async() != null;
+        }
+
+        return false;
+    }
+}
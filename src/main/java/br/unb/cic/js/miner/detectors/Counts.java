@@ -0,0 +1,26 @@
+package br.unb.cic.js.miner.detectors;
+
+/**
+ * The counters of a detector on the file being walked, indexed by the position of a column in
+ * {@link Detector#columns()}.
+ */
+public final class Counts {
+
+    private final int[] values;
+
+    // Position of each column of the detector in the metric vector
+    private final int[] slots;
+
+    Counts(int[] values, int[] slots) {
+        this.values = values;
+        this.slots = slots;
+    }
+
+    public void increment(int column) {
+        values[slots[column]]++;
+    }
+
+    public void add(int column, int amount) {
+        values[slots[column]] += amount;
+    }
+}
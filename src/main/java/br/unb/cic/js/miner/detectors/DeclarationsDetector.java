@@ -0,0 +1,80 @@
+package br.unb.cic.js.miner.detectors;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import static br.unb.cic.js.miner.JavaScriptParser.*;
+
+/**
+ * Counts the ES6 declarations: const, class, arrow (and anonymous) functions, let, export and yield, and the static and
+ * dynamic imports.
+ */
+public final class DeclarationsDetector implements Detector {
+
+    private static final int CONST = 0;
+    private static final int CLASS = 1;
+    private static final int ARROW = 2;
+    private static final int LET = 3;
+    private static final int EXPORT = 4;
+    private static final int YIELD = 5;
+    private static final int IMPORT = 6;
+
+    @Override
+    public String[] columns() {
+        return new String[]{
+                "const-declarations",
+                "class-declarations",
+                "arrow-function-declarations",
+                "let-declarations",
+                "export-declarations",
+                "yield-declarations",
+                "import-statements",
+        };
+    }
+
+    @Override
+    public int[] rules() {
+        return new int[]{RULE_varModifier, RULE_classDeclaration, RULE_anonymousFunction, RULE_exportStatement, RULE_importStatement, RULE_singleExpression};
+    }
+
+    @Override
+    public void visit(ParserRuleContext node, Counts counts) {
+        switch (node.getRuleIndex()) {
+            case RULE_varModifier:
+                if (((VarModifierContext) node).Const() != null) {
+                    counts.increment(CONST);
+                }
+                if (((VarModifierContext) node).let_() != null) {
+                    counts.increment(LET);
+                }
+                break;
+            case RULE_classDeclaration:
+                if (((ClassDeclarationContext) node).Class() != null) {
+                    counts.increment(CLASS);
+                }
+                break;
+            case RULE_anonymousFunction:
+                // both the arrows and the anonymous function expressions
+                if (node instanceof ArrowFunctionContext || node instanceof AnonymousFunctionDeclContext) {
+                    counts.increment(ARROW);
+                }
+                break;
+            case RULE_exportStatement:
+                if (node instanceof ExportDeclarationContext && ((ExportDeclarationContext) node).Export() != null) {
+                    counts.increment(EXPORT);
+                }
+                break;
+            case RULE_importStatement:
+                if (((ImportStatementContext) node).Import() != null) {
+                    counts.increment(IMPORT);
+                }
+                break;
+            default:
+                if (node instanceof YieldExpressionContext && ((YieldExpressionContext) node).yieldStatement() != null) {
+                    counts.increment(YIELD);
+                }
+                if (node instanceof ImportExpressionContext && ((ImportExpressionContext) node).Import() != null) {
+                    counts.increment(IMPORT);
+                }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package br.unb.cic.js.miner.detectors;
+
+import lombok.val;
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import static br.unb.cic.js.miner.JavaScriptParser.*;
+
+/**
+ * Counts the array and object destructuring, both in assignments and in variable declarations with an initializer.
+ */
+public final class DestructuringDetector implements Detector {
+
+    private static final int ARRAY = 0;
+    private static final int OBJECT = 1;
+
+    @Override
+    public String[] columns() {
+        return new String[]{"array-destructuring", "object-destructuring"};
+    }
+
+    @Override
+    public int[] rules() {
+        return new int[]{RULE_variableDeclaration, RULE_singleExpression};
+    }
+
+    @Override
+    public void visit(ParserRuleContext node, Counts counts) {
+        if (node instanceof AssignmentExpressionContext) {
+            val target = ((AssignmentExpressionContext) node).singleExpression().get(0);
+
+            if (target instanceof ArrayLiteralExpressionContext) {
+                counts.increment(ARRAY);
+            } else if (target instanceof ObjectLiteralExpressionContext) {
+                counts.increment(OBJECT);
+            }
+        } else if (node instanceof VariableDeclarationContext) {
+            val declaration = (VariableDeclarationContext) node;
+
+            if (declaration.singleExpression() != null && !declaration.assignable().isEmpty()) {
+                if (declaration.assignable().arrayLiteral() != null) {
+                    counts.increment(ARRAY);
+                } else if (declaration.assignable().objectLiteral() != null) {
+                    counts.increment(OBJECT);
+                }
+            }
+        }
+    }
+}
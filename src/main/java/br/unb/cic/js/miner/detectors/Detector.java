@@ -0,0 +1,33 @@
+package br.unb.cic.js.miner.detectors;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+/**
+ * A detector counts a set of metrics of a file from its parse tree. Instead of walking the tree on its own it
+ * subscribes to the rules it cares about, and {@link Detectors} hands it the nodes of those rules while the tree is
+ * walked once for every detector.
+ * <p>
+ * Detectors are found with a {@link java.util.ServiceLoader}: list the class in
+ * {@code META-INF/services/br.unb.cic.js.miner.detectors.Detector} of a jar in the classpath. A single instance is
+ * shared by every thread, so the counters of the file being walked are given to each call instead of being kept by the
+ * detector.
+ */
+public interface Detector {
+
+    /**
+     * The names of the columns counted by this detector, as in the header of the reports. The counters given to
+     * {@link #visit} are indexed in this order.
+     */
+    String[] columns();
+
+    /**
+     * The rules whose nodes this detector visits ({@code JavaScriptParser.RULE_*}). Labeled alternatives share the
+     * index of their rule, so their contexts have to be told apart with {@code instanceof}.
+     */
+    int[] rules();
+
+    /**
+     * Visits a node of one of the subscribed rules, the nodes of a file are visited in depth first order.
+     */
+    void visit(ParserRuleContext node, Counts counts);
+}
@@ -0,0 +1,174 @@
+package br.unb.cic.js.miner.detectors;
+
+import br.unb.cic.js.miner.JavaScriptParser;
+import br.unb.cic.js.miner.metrics.MetricVector;
+import lombok.val;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Detectors is a set of {@link Detector} and the dispatcher that runs them: the parse tree of a file is walked once,
+ * and each node is handed only to the detectors subscribed to its rule.
+ * <p>
+ * The columns of the detectors make a layout: the ones already known by the reports keep their place, the others are
+ * appended in the order the detectors are given. The detectors of the classpath make the layout of
+ * {@link MetricVector}.
+ */
+public final class Detectors {
+
+    private final List<Detector> detectors;
+    private final String[] columns;
+
+    // Where the columns of each detector are in the layout, and which detectors are subscribed to each rule
+    private final int[][] slots;
+    private final int[][] subscribers = new int[JavaScriptParser.ruleNames.length][];
+
+    private Detectors(List<Detector> detectors, String[] columns) {
+        this.detectors = detectors;
+        this.columns = columns;
+        this.slots = new int[detectors.size()][];
+
+        val layout = Arrays.asList(columns);
+        val rules = new ArrayList<List<Integer>>();
+
+        for (int r = 0; r < subscribers.length; r++) {
+            rules.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < slots.length; i++) {
+            val detector = detectors.get(i);
+
+            slots[i] = Arrays.stream(detector.columns()).mapToInt(layout::indexOf).toArray();
+
+            for (val rule : detector.rules()) {
+                rules.get(rule).add(i);
+            }
+        }
+
+        for (int r = 0; r < subscribers.length; r++) {
+            subscribers[r] = rules.get(r).stream().distinct().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Finds the detectors of the classpath and lays out their columns after the known ones.
+     */
+    public static Detectors load(String... known) {
+        val found = new ArrayList<Detector>();
+
+        for (val detector : ServiceLoader.load(Detector.class)) {
+            found.add(detector);
+        }
+
+        return of(found, known);
+    }
+
+    /**
+     * Lays out the columns of a given list of detectors after the known ones. The known columns that no built-in
+     * detector declares (files, errors, generated-*) are filled by the walker, so a plugin can't count them.
+     */
+    public static Detectors of(List<Detector> detectors, String... known) {
+        val columns = new LinkedHashSet<>(Arrays.asList(known));
+        val declared = new LinkedHashSet<String>();
+        val reserved = new HashSet<>(columns);
+
+        for (val detector : detectors) {
+            if (builtIn(detector)) {
+                reserved.removeAll(Arrays.asList(detector.columns()));
+            }
+        }
+
+        for (val detector : detectors) {
+            for (val column : detector.columns()) {
+                if (!declared.add(column)) {
+                    throw new IllegalStateException("column " + column + " of detector " + detector.getClass().getName() + " is counted by another detector");
+                }
+
+                if (!builtIn(detector) && reserved.contains(column)) {
+                    throw new IllegalStateException("column " + column + " of detector " + detector.getClass().getName() + " is filled by the walker");
+                }
+
+                columns.add(column);
+            }
+        }
+
+        return new Detectors(List.copyOf(detectors), columns.toArray(new String[0]));
+    }
+
+    /**
+     * Returns the detectors of the classpath, in the order their columns are laid out.
+     */
+    public static List<Detector> detectors() {
+        return MetricVector.detectors.detectors;
+    }
+
+    /**
+     * Walks the parse tree of a file once with the detectors of the classpath, and returns the vector of the file.
+     */
+    public static MetricVector measure(ParseTree tree) {
+        val values = MetricVector.detectors.count(tree);
+
+        values[MetricVector.FILES] = 1;
+
+        return new MetricVector(values);
+    }
+
+    // The detectors of this package, the others are plugins
+    private static boolean builtIn(Detector detector) {
+        return detector.getClass().getPackageName().equals(Detectors.class.getPackageName());
+    }
+
+    /**
+     * Returns the names of the columns, in the order of the layout.
+     */
+    public String[] columns() {
+        return columns.clone();
+    }
+
+    /**
+     * Walks the parse tree of a file once, handing each node to the detectors of its rule, and returns the counters of
+     * every column of the layout.
+     */
+    public int[] count(ParseTree tree) {
+        val values = new int[columns.length];
+        val counts = new Counts[detectors.size()];
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new Counts(values, slots[i]);
+        }
+
+        val pending = new ArrayDeque<ParseTree>();
+
+        pending.push(tree);
+
+        while (!pending.isEmpty()) {
+            val node = pending.pop();
+
+            // tokens have no rule, only the contexts are visited
+            if (!(node instanceof ParserRuleContext)) {
+                continue;
+            }
+
+            val context = (ParserRuleContext) node;
+
+            for (val i : subscribers[context.getRuleIndex()]) {
+                detectors.get(i).visit(context, counts[i]);
+            }
+
+            // pushed backwards, so the children are visited from left to right
+            for (int i = context.getChildCount() - 1; i >= 0; i--) {
+                pending.push(context.getChild(i));
+            }
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,45 @@
+package br.unb.cic.js.miner.detectors;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import static br.unb.cic.js.miner.JavaScriptParser.*;
+
+/**
+ * Counts the default parameters, the rest parameters and the spread arguments.
+ */
+public final class ParametersDetector implements Detector {
+
+    private static final int DEFAULT = 0;
+    private static final int REST = 1;
+    private static final int SPREAD = 2;
+
+    @Override
+    public String[] columns() {
+        return new String[]{"default-parameters", "rest-statements", "spread-arguments"};
+    }
+
+    @Override
+    public int[] rules() {
+        return new int[]{RULE_formalParameterArg, RULE_lastFormalParameterArg, RULE_argument};
+    }
+
+    @Override
+    public void visit(ParserRuleContext node, Counts counts) {
+        switch (node.getRuleIndex()) {
+            case RULE_formalParameterArg:
+                if (((FormalParameterArgContext) node).singleExpression() != null) {
+                    counts.increment(DEFAULT);
+                }
+                break;
+            case RULE_lastFormalParameterArg:
+                if (((LastFormalParameterArgContext) node).Ellipsis() != null) {
+                    counts.increment(REST);
+                }
+                break;
+            default:
+                if (((ArgumentContext) node).Ellipsis() != null) {
+                    counts.increment(SPREAD);
+                }
+        }
+    }
+}
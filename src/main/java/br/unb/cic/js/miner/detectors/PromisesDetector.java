@@ -0,0 +1,123 @@
+package br.unb.cic.js.miner.detectors;
+
+import lombok.val;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import static br.unb.cic.js.miner.JavaScriptParser.*;
+
+/**
+ * Counts the promises created with new and the calls whose callee mentions Promise, all and then.
+ * <p>
+ * The tokens are compared with the characters of the input, so no text is built for the nodes visited.
+ */
+public final class PromisesDetector implements Detector {
+
+    private static final String THEN = "then";
+    private static final String ALL = "all";
+    private static final String PROMISE = "Promise";
+
+    private static final int NEW = 0;
+    private static final int ALL_AND_THEN = 1;
+
+    // The words found among the tokens of a callee, one bit each
+    private static final int FOUND_THEN = 1;
+    private static final int FOUND_ALL = 2;
+    private static final int FOUND_PROMISE = 4;
+    private static final int FOUND = FOUND_THEN | FOUND_ALL | FOUND_PROMISE;
+
+    @Override
+    public String[] columns() {
+        return new String[]{"promise-declarations", "promise-all-and-then"};
+    }
+
+    @Override
+    public int[] rules() {
+        return new int[]{RULE_singleExpression};
+    }
+
+    @Override
+    public void visit(ParserRuleContext node, Counts counts) {
+        if (node instanceof NewExpressionContext) {
+            val expression = (NewExpressionContext) node;
+            val callee = expression.singleExpression();
+
+            // an expression made of a single token, as the text of anything longer isn't the name alone
+            if (callee != null && callee.getStart() == callee.getStop() && is(callee.getStart(), PROMISE)) {
+                counts.increment(NEW);
+            }
+            if (expression.identifier() != null && expression.identifier().Identifier() != null &&
+                    is(expression.identifier().Identifier().getSymbol(), PROMISE)) {
+                counts.increment(NEW);
+            }
+        } else if (node instanceof ArgumentsExpressionContext) {
+            if (words(((ArgumentsExpressionContext) node).singleExpression(), 0) == FOUND) {
+                counts.increment(ALL_AND_THEN);
+            }
+        }
+    }
+
+    // The words found among the tokens of a subtree, added to the ones already found
+    private static int words(ParseTree tree, int found) {
+        if (tree instanceof TerminalNode) {
+            val token = ((TerminalNode) tree).getSymbol();
+
+            if ((found & FOUND_THEN) == 0 && contains(token, THEN)) {
+                found |= FOUND_THEN;
+            }
+            if ((found & FOUND_ALL) == 0 && contains(token, ALL)) {
+                found |= FOUND_ALL;
+            }
+            if ((found & FOUND_PROMISE) == 0 && contains(token, PROMISE)) {
+                found |= FOUND_PROMISE;
+            }
+
+            return found;
+        }
+
+        for (int i = 0; i < tree.getChildCount() && found != FOUND; i++) {
+            found = words(tree.getChild(i), found);
+        }
+
+        return found;
+    }
+
+    private static boolean is(Token token, String word) {
+        return token.getStopIndex() - token.getStartIndex() + 1 == word.length() && contains(token, word);
+    }
+
+    private static boolean contains(Token token, String word) {
+        val input = token.getInputStream();
+        val start = token.getStartIndex();
+        val stop = token.getStopIndex();
+
+        if (input == null || stop - start + 1 < word.length()) {
+            return false;
+        }
+
+        // the lexer is done with the input, its position is restored anyway
+        val index = input.index();
+
+        try {
+            for (int offset = start; offset + word.length() - 1 <= stop; offset++) {
+                input.seek(offset);
+
+                var matches = true;
+
+                for (int i = 0; i < word.length() && matches; i++) {
+                    matches = input.LA(i + 1) == word.charAt(i);
+                }
+
+                if (matches) {
+                    return true;
+                }
+            }
+
+            return false;
+        } finally {
+            input.seek(index);
+        }
+    }
+}
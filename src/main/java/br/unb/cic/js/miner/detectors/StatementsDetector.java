@@ -0,0 +1,66 @@
+package br.unb.cic.js.miner.detectors;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import static br.unb.cic.js.miner.JavaScriptParser.*;
+
+/**
+ * Counts the statements of a file, and each statement list as one more.
+ */
+public final class StatementsDetector implements Detector {
+
+    @Override
+    public String[] columns() {
+        return new String[]{"statements"};
+    }
+
+    @Override
+    public int[] rules() {
+        return new int[]{RULE_statement, RULE_statementList};
+    }
+
+    @Override
+    public void visit(ParserRuleContext node, Counts counts) {
+        if (node instanceof StatementListContext) {
+            if (((StatementListContext) node).statement() != null) {
+                counts.increment(0);
+            }
+        } else if (node.getChildCount() > 0 && isStatement(node.getChild(0))) {
+            // every alternative of a statement is a single rule, so it's enough to look at the rule of its child
+            counts.increment(0);
+        }
+    }
+
+    private static boolean isStatement(ParseTree child) {
+        if (!(child instanceof ParserRuleContext)) {
+            return false;
+        }
+
+        switch (((ParserRuleContext) child).getRuleIndex()) {
+            case RULE_variableStatement:
+            case RULE_importStatement:
+            case RULE_block:
+            case RULE_exportStatement:
+            case RULE_emptyStatement_:
+            case RULE_classDeclaration:
+            case RULE_expressionStatement:
+            case RULE_ifStatement:
+            case RULE_iterationStatement:
+            case RULE_continueStatement:
+            case RULE_breakStatement:
+            case RULE_returnStatement:
+            case RULE_yieldStatement:
+            case RULE_withStatement:
+            case RULE_labelledStatement:
+            case RULE_switchStatement:
+            case RULE_throwStatement:
+            case RULE_tryStatement:
+            case RULE_debuggerStatement:
+            case RULE_functionDeclaration:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
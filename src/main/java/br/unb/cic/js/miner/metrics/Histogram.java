@@ -0,0 +1,98 @@
+package br.unb.cic.js.miner.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram counts non negative values (e.g. nanoseconds) in log-linear buckets, like HdrHistogram: every power of two
+ * is split into 32 buckets, so any recorded value is known within ~3% using a fixed amount of memory. Values may be
+ * recorded by several threads at once.
+ */
+public final class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+
+    private static final int BUCKETS = SUB + (64 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long total() {
+        return total.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public long mean() {
+        long c = count.get();
+
+        return c == 0 ? 0 : total.get() / c;
+    }
+
+    /**
+     * Returns the highest value of the bucket holding a given percentile (between 0 and 100) of the values.
+     */
+    public long percentile(double percentile) {
+        long c = count.get();
+
+        if (c == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(c * percentile / 100.0));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+
+            if (seen >= rank) {
+                return Math.min(highest(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+
+        return SUB + shift * SUB + (int) ((value >>> shift) & (SUB - 1));
+    }
+
+    private static long highest(int bucket) {
+        if (bucket < SUB) {
+            return bucket;
+        }
+
+        int shift = (bucket - SUB) / SUB;
+        long lowest = (long) (SUB + (bucket - SUB) % SUB) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+}
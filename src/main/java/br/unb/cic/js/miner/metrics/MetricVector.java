@@ -0,0 +1,157 @@
+package br.unb.cic.js.miner.metrics;
+
+import br.unb.cic.js.miner.JSVisitor;
+import br.unb.cic.js.miner.detectors.Detectors;
+import lombok.val;
+
+import java.util.Arrays;
+
+/**
+ * MetricVector is the fixed-width set of counters collected for a single file. Since every column is additive, the
+ * metrics of a revision are the sum of the vectors of its files. The columns follow the order of the CSV report: the
+ * ones below keep their place and the columns of other detectors are appended (see {@link Detectors}).
+ */
+public final class MetricVector {
+
+    // The detectors of the classpath, which lay out the columns
+    public static final Detectors detectors = Detectors.load(
+            "files",
+            "async-declarations",
+            "await-declarations",
+            "const-declarations",
+            "class-declarations",
+            "arrow-function-declarations",
+            "let-declarations",
+            "export-declarations",
+            "yield-declarations",
+            "import-statements",
+            "promise-declarations",
+            "promise-all-and-then",
+            "default-parameters",
+            "rest-statements",
+            "spread-arguments",
+            "array-destructuring",
+            "object-destructuring",
+            "errors",
+            "statements",
+            "generated-files",
+            "generated-kib"
+    );
+
+    public static final String[] columns = detectors.columns();
+
+    public static final int FILES = 0;
+    public static final int ERRORS = 17;
+
+    // Files classified as generated or minified (see GeneratedRule) and their size, whether they were parsed or not. The
+    // size of each file is rounded up to KiB, bytes would overflow the sum of a commit group with a few large bundles
+    public static final int GENERATED = 19;
+    public static final int GENERATED_KIB = 20;
+
+    private final int[] values;
+
+    public MetricVector() {
+        this(new int[columns.length]);
+    }
+
+    public MetricVector(int[] values) {
+        assert (values.length == columns.length);
+
+        this.values = values;
+    }
+
+    /**
+     * Returns the position of a column, or -1 if there is no column with that name.
+     */
+    public static int column(String name) {
+        return Arrays.asList(columns).indexOf(name);
+    }
+
+    /**
+     * Builds the vector of a file that was successfully visited.
+     */
+    public static MetricVector of(JSVisitor visitor) {
+        val v = visitor.vector();
+
+        v.values[FILES] = 1;
+
+        return v;
+    }
+
+    /**
+     * Builds the vector of a file that was left out without being parsed, it only counts as a file.
+     */
+    public static MetricVector skipped() {
+        val v = new MetricVector();
+
+        v.values[FILES] = 1;
+
+        return v;
+    }
+
+    /**
+     * Builds the vector of a file that failed to be parsed or visited, it only counts as a file and as an error.
+     */
+    public static MetricVector failure() {
+        val v = new MetricVector();
+
+        v.values[FILES] = 1;
+        v.values[ERRORS] = 1;
+
+        return v;
+    }
+
+    /**
+     * Builds the vector of a generated file that wasn't parsed, it only counts as a file when it is counted.
+     */
+    public static MetricVector generated(long bytes, boolean counted) {
+        val v = new MetricVector();
+
+        v.values[FILES] = counted ? 1 : 0;
+
+        return v.marked(true, bytes);
+    }
+
+    /**
+     * Returns a copy of this vector with the columns of generated files set to a single file of a given size in bytes,
+     * or cleared when it isn't generated.
+     */
+    public MetricVector marked(boolean generated, long bytes) {
+        val v = new MetricVector(values());
+
+        v.values[GENERATED] = generated ? 1 : 0;
+        v.values[GENERATED_KIB] = generated ? (int) Math.min((bytes + 1023) / 1024, Integer.MAX_VALUE) : 0;
+
+        return v;
+    }
+
+    public int get(int column) {
+        return values[column];
+    }
+
+    /**
+     * Adds the counters of another vector into this one.
+     */
+    public MetricVector add(MetricVector other) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] += other.values[i];
+        }
+
+        return this;
+    }
+
+    /**
+     * Removes the counters of another vector from this one.
+     */
+    public MetricVector subtract(MetricVector other) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] -= other.values[i];
+        }
+
+        return this;
+    }
+
+    public int[] values() {
+        return Arrays.copyOf(values, values.length);
+    }
+}
@@ -0,0 +1,27 @@
+package br.unb.cic.js.miner.metrics;
+
+/**
+ * The phases the time spent mining a project is split into.
+ */
+public enum Phase {
+    // checking out a revision on the working tree
+    CHECKOUT,
+    // listing the files of a revision, walking the working tree or the git trees
+    ENUMERATE,
+    // loading the content of a file
+    READ,
+    // decoding and tokenizing a file
+    LEX,
+    // parsing the tokens of a file
+    PARSE,
+    // visiting the syntax tree of a file
+    VISIT,
+    // writing a commit group to the report
+    WRITE,
+    // collecting a whole commit group
+    GROUP;
+
+    public String label() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,114 @@
+package br.unb.cic.js.miner.metrics;
+
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Profile is where the time spent mining a project goes: a histogram of nanoseconds for each phase and the files that
+ * took the longest to be analyzed.
+ */
+public final class Profile {
+
+    // How many of the slowest files are kept
+    public static final int SLOWEST = 10;
+
+    private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+
+    // The slowest files so far, the fastest of them on top
+    private final PriorityQueue<File> slowest = new PriorityQueue<>(Comparator.comparingLong(f -> f.time));
+
+    private volatile long threshold;
+
+    public Profile() {
+        for (val phase : Phase.values()) {
+            phases.put(phase, new Histogram());
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    public Histogram get(Phase phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * Records the time spent analyzing a file, it is only kept if it is among the slowest ones.
+     */
+    public void file(String path, long nanos) {
+        if (nanos <= threshold) {
+            return;
+        }
+
+        synchronized (slowest) {
+            slowest.add(new File(path, nanos));
+
+            if (slowest.size() > SLOWEST) {
+                slowest.poll();
+            }
+
+            if (slowest.size() == SLOWEST) {
+                threshold = slowest.peek().time;
+            }
+        }
+    }
+
+    /**
+     * Formats the profile as a table of phases (in microseconds) followed by the slowest files (in milliseconds).
+     */
+    public String format() {
+        val out = new StringBuilder();
+
+        out.append(String.format("%-10s %10s %12s %10s %10s %10s %10s %10s%n", "phase", "count", "total (ms)", "mean (us)", "p50 (us)", "p90 (us)", "p99 (us)", "max (us)"));
+
+        for (val entry : phases.entrySet()) {
+            val h = entry.getValue();
+
+            if (h.count() == 0) {
+                continue;
+            }
+
+            out.append(String.format("%-10s %10d %12d %10d %10d %10d %10d %10d%n",
+                    entry.getKey().label(),
+                    h.count(),
+                    h.total() / 1_000_000,
+                    h.mean() / 1_000,
+                    h.percentile(50) / 1_000,
+                    h.percentile(90) / 1_000,
+                    h.percentile(99) / 1_000,
+                    h.max() / 1_000));
+        }
+
+        ArrayList<File> files;
+
+        synchronized (slowest) {
+            files = new ArrayList<>(slowest);
+        }
+
+        files.sort(Comparator.comparingLong((File f) -> f.time).reversed());
+
+        out.append(String.format("%nslowest files (ms)%n"));
+
+        for (val file : files) {
+            out.append(String.format("%10d %s%n", file.time / 1_000_000, file.path));
+        }
+
+        return out.toString();
+    }
+
+    private static final class File {
+        final String path;
+        final long time;
+
+        File(String path, long time) {
+            this.path = path;
+            this.time = time;
+        }
+    }
+}
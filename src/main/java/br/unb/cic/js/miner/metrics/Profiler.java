@@ -1,37 +1,29 @@
 package br.unb.cic.js.miner.metrics;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Profiler abstracts a set of points whose value is the time it took to do some computation. The precision of the
- * profiler is given in milliseconds.
+ * profiler is given in milliseconds. Only the aggregates of the points are kept, so it uses the same memory no matter
+ * how many points are recorded (see {@link Histogram} for their distribution).
  */
 public class Profiler {
 
-    // Set of points for a given runtime
-    private final List<Long> points;
+    // Aggregates of the points for a given runtime
+    private long count;
+    private long total;
+    private long last;
 
     private Long timer;
 
-    public Profiler() {
-        points = new ArrayList<>();
-    }
-
-    public Long average() {
-        if (points.size() == 0) {
+    public synchronized Long average() {
+        if (count == 0) {
             return 0L;
         }
 
-        return points.stream().reduce(Long::sum).orElse(0L) / points.size();
+        return total / count;
     }
 
-    public Long last() {
-        if (points.size() == 0) {
-            return 0L;
-        }
-
-        return points.get(points.size() - 1);
+    public synchronized Long last() {
+        return last;
     }
 
     /**
@@ -45,15 +37,24 @@ public class Profiler {
      * Stop the timer and add the data point to an internal structure
      */
     public void stop() {
-        this.points.add(System.currentTimeMillis() - timer);
+        add(System.currentTimeMillis() - timer);
 
         timer = 0L;
     }
 
+    /**
+     * Add a data point measured elsewhere, it may be called by several threads at once.
+     */
+    public synchronized void add(Long point) {
+        count++;
+        total += point;
+        last = point;
+    }
+
     /**
      * Computes the total time the timer has recorded
      */
-    public Long total() {
-        return points.stream().reduce(Long::sum).orElse(0L);
+    public synchronized Long total() {
+        return total;
     }
 }
@@ -5,8 +5,8 @@ import lombok.val;
 
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.IntStream;
 
 /**
@@ -15,9 +15,12 @@ import java.util.stream.IntStream;
 @Builder
 public class Summary {
 
-    private final String project; // summary project name
-    private final Date date; // date of git commit
-    private final String revision; // commit hash
+    public final String project; // summary project name
+    public final Date date; // date of git commit
+    public final String revision; // commit hash
+
+    // Metrics of the revision, null if it failed to be collected
+    public final MetricVector totals;
 
     // Internal summary size (the number of columns in the resulting CSV file)
     private final Integer size = header().split(",").length;
@@ -25,35 +28,13 @@ public class Summary {
     public List<Metric<?>> metrics;
 
     // Map of files to errors that occurred when parsing or visiting
-    public final HashMap<String, String> errors;
+    public final Map<String, String> errors;
 
     /**
-     * Returns a string containing the header for the CSV report with default fields
+     * Returns a string containing the header for the CSV report, followed by a column for each metric of the vector
      */
     public static String header() {
-        val h = new StringBuilder();
-
-        h.append("project,date,revision,files")
-                .append(",async-declarations")
-                .append(",await-declarations")
-                .append(",const-declarations")
-                .append(",class-declarations")
-                .append(",arrow-function-declarations")
-                .append(",let-declarations")
-                .append(",export-declarations")
-                .append(",yield-declarations")
-                .append(",import-statements")
-                .append(",promise-declarations")
-                .append(",promise-all-and-then")
-                .append(",default-parameters")
-                .append(",rest-statements")
-                .append(",spread-arguments")
-                .append(",array-destructuring")
-                .append(",object-destructuring")
-                .append(",errors")
-                .append(",statements\n");
-
-        return h.toString();
+        return "project,date,revision," + String.join(",", MetricVector.columns) + "\n";
     }
 
     public String values() {
@@ -156,8 +156,8 @@ public abstract class JavaScriptLexerBase extends Lexer
     public void reset() {
         this.scopeStrictModes.clear();
         this.lastToken = null;
-        this.useStrictDefault = false;
-        this.useStrictCurrent = false;
+        // the default is defined externally, so it survives a reset (e.g. when the lexer is reused for another input)
+        this.useStrictCurrent = this.useStrictDefault;
         this.templateDepth = 0;
         super.reset();
     }
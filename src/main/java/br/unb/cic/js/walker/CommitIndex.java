@@ -0,0 +1,310 @@
+package br.unb.cic.js.walker;
+
+import lombok.val;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * CommitIndex is the history of the main branch sorted by author date: the date (in milliseconds) and the id of every
+ * commit that isn't a merge, in primitive arrays. Commit groups are sampled and clipped to an interval, and revisions
+ * looked up by hash, with binary searches on it, so the history is walked once per head instead of on every run.
+ * <p>
+ * It is kept in {@code <project>.commits}: magic, version, the head it was built from, the number of commits, their
+ * dates and then the 20 bytes of each id, all little endian. An index built from another head is built again.
+ */
+final class CommitIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommitIndex.class);
+
+    private static final int MAGIC = 0x494d534a; // JSMI
+    private static final int VERSION = 1;
+
+    private static final int HEADER = 4 + 4 + Constants.OBJECT_ID_LENGTH + 4;
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    final ObjectId head;
+
+    // Dates in ascending order, commits with the same date are in the opposite order of the rev walk
+    private final long[] dates;
+    private final byte[] ids;
+
+    // Positions sorted by commit id
+    private final int[] byId;
+
+    private CommitIndex(ObjectId head, long[] dates, byte[] ids) {
+        this.head = head;
+        this.dates = dates;
+        this.ids = ids;
+        this.byId = IntStream.range(0, dates.length)
+                .boxed()
+                .sorted(Comparator.comparing(this::id))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Loads the index of a repository from a file, building (and saving) it when the file is missing or was built
+     * from another head. Without a file the index is only built in memory.
+     */
+    static CommitIndex open(Repository repository, ObjectId head, Path file) throws IOException {
+        if (file != null && Files.exists(file)) {
+            val index = load(file, head);
+
+            if (index != null) {
+                return index;
+            }
+        }
+
+        val index = build(repository, head);
+
+        if (file != null) {
+            index.save(file);
+        }
+
+        return index;
+    }
+
+    /**
+     * Walks the history of a head, skipping merges.
+     */
+    static CommitIndex build(Repository repository, ObjectId head) throws IOException {
+        var dates = new long[1024];
+        var ids = new byte[1024 * Constants.OBJECT_ID_LENGTH];
+        var count = 0;
+
+        try (val walk = new RevWalk(repository)) {
+            walk.markStart(walk.parseCommit(head));
+            walk.setRevFilter(RevFilter.NO_MERGES);
+
+            for (val commit : walk) {
+                if (count == dates.length) {
+                    dates = Arrays.copyOf(dates, count * 2);
+                    ids = Arrays.copyOf(ids, count * 2 * Constants.OBJECT_ID_LENGTH);
+                }
+
+                dates[count] = commit.getAuthorIdent().getWhen().getTime();
+                commit.copyRawTo(ids, count * Constants.OBJECT_ID_LENGTH);
+                count++;
+            }
+        }
+
+        val walked = dates;
+
+        // the walk visits children before their parents, so commits with the same date are sorted in reverse walk order
+        // and the last one of a date is the latest state of the branch at that date
+        val order = IntStream.range(0, count)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingLong(i -> walked[i]).thenComparing(Comparator.reverseOrder()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        val sortedDates = new long[count];
+        val sortedIds = new byte[count * Constants.OBJECT_ID_LENGTH];
+
+        for (int i = 0; i < count; i++) {
+            sortedDates[i] = dates[order[i]];
+            System.arraycopy(ids, order[i] * Constants.OBJECT_ID_LENGTH, sortedIds, i * Constants.OBJECT_ID_LENGTH, Constants.OBJECT_ID_LENGTH);
+        }
+
+        return new CommitIndex(head.copy(), sortedDates, sortedIds);
+    }
+
+    int size() {
+        return dates.length;
+    }
+
+    Date date(int position) {
+        return new Date(dates[position]);
+    }
+
+    ObjectId id(int position) {
+        return ObjectId.fromRaw(ids, position * Constants.OBJECT_ID_LENGTH);
+    }
+
+    /**
+     * Returns the position of the first commit on or after a date, or the size of the index if there is none.
+     */
+    int from(Date date) {
+        var low = 0;
+        var high = dates.length;
+
+        while (low < high) {
+            val middle = (low + high) >>> 1;
+
+            if (dates[middle] < date.getTime()) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns the position of the last commit on or before a date, or -1 if there is none.
+     */
+    int until(Date date) {
+        return from(new Date(date.getTime() + 1)) - 1;
+    }
+
+    /**
+     * Returns the number of commits between two dates (inclusive).
+     */
+    int count(Date begin, Date end) {
+        return Math.max(0, until(end) - from(begin) + 1);
+    }
+
+    /**
+     * Samples the commit groups of an interval: starting from its last commit, each group is the last commit that is
+     * at least a number of days older than the previous group. Returns their positions in ascending order.
+     */
+    int[] sample(Date begin, Date end, int steps) {
+        val first = from(begin);
+
+        var groups = new int[16];
+        var count = 0;
+
+        for (int position = until(end); position >= first; ) {
+            if (count == groups.length) {
+                groups = Arrays.copyOf(groups, count * 2);
+            }
+
+            groups[count++] = position;
+
+            position = steps > 0 ? until(new Date(dates[position] - steps * DAY)) : position - 1;
+        }
+
+        val sampled = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            sampled[i] = groups[count - 1 - i];
+        }
+
+        return sampled;
+    }
+
+    /**
+     * Returns the position of a commit given its full hash, or -1 if it isn't in the index.
+     */
+    int find(String hash) {
+        if (!ObjectId.isId(hash)) {
+            return -1;
+        }
+
+        val id = ObjectId.fromString(hash);
+
+        var low = 0;
+        var high = byId.length - 1;
+
+        while (low <= high) {
+            val middle = (low + high) >>> 1;
+            val comparison = id(byId[middle]).compareTo(id);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return byId[middle];
+            }
+        }
+
+        return -1;
+    }
+
+    private static CommitIndex load(Path file, ObjectId head) throws IOException {
+        try (val channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            val buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+
+            buffer.flip();
+
+            if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.warn("{} isn't a commit index, building it again", file);
+                return null;
+            }
+
+            val raw = new byte[Constants.OBJECT_ID_LENGTH];
+
+            buffer.get(raw);
+
+            if (!ObjectId.fromRaw(raw).equals(head)) {
+                logger.info("{} was built from another head, building it again", file);
+                return null;
+            }
+
+            val count = buffer.getInt();
+
+            if (count < 0 || buffer.remaining() != (long) count * (8 + Constants.OBJECT_ID_LENGTH)) {
+                logger.warn("{} is truncated, building it again", file);
+                return null;
+            }
+
+            val dates = new long[count];
+            val ids = new byte[count * Constants.OBJECT_ID_LENGTH];
+
+            buffer.asLongBuffer().get(dates);
+            buffer.position(buffer.position() + 8 * count);
+            buffer.get(ids);
+
+            return new CommitIndex(head.copy(), dates, ids);
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file that is then moved over the old one, so a crash never leaves a partial
+     * index behind.
+     */
+    private void save(Path file) throws IOException {
+        val buffer = ByteBuffer.allocate(HEADER + dates.length * (8 + Constants.OBJECT_ID_LENGTH)).order(ByteOrder.LITTLE_ENDIAN);
+
+        val raw = new byte[Constants.OBJECT_ID_LENGTH];
+
+        head.copyRawTo(raw, 0);
+
+        buffer.putInt(MAGIC).putInt(VERSION).put(raw).putInt(dates.length);
+
+        for (val date : dates) {
+            buffer.putLong(date);
+        }
+
+        buffer.put(ids);
+        buffer.flip();
+
+        val temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (val channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(false);
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,51 @@
+package br.unb.cic.js.walker;
+
+import br.unb.cic.js.miner.metrics.MetricVector;
+import lombok.val;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * FileTasks analyzes the files of a revision on the executor of the repository, summing their vectors as they complete.
+ * At most a window of files is in flight: a submission waits for the oldest one while the window is full, so the memory
+ * used doesn't depend on how many files a revision has.
+ */
+final class FileTasks {
+
+    private final ExecutorService executor;
+    private final int window;
+
+    private final ArrayDeque<Future<MetricVector>> running;
+
+    private final MetricVector totals;
+
+    FileTasks(ExecutorService executor, int window, MetricVector totals) {
+        this.executor = executor;
+        this.window = window;
+        this.running = new ArrayDeque<>(window);
+        this.totals = totals;
+    }
+
+    void submit(Callable<MetricVector> task) throws Exception {
+        if (running.size() == window) {
+            // on a fork join pool, waiting for a task runs it (or others) instead of blocking the worker
+            totals.add(running.poll().get());
+        }
+
+        running.add(executor.submit(task));
+    }
+
+    /**
+     * Waits for every submitted file, returning the sum of their vectors.
+     */
+    MetricVector await() throws Exception {
+        while (!running.isEmpty()) {
+            totals.add(running.poll().get());
+        }
+
+        return totals;
+    }
+}
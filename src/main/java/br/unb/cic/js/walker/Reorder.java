@@ -0,0 +1,95 @@
+package br.unb.cic.js.walker;
+
+import br.unb.cic.js.miner.metrics.Summary;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Reorder hands the summaries of commit groups collected out of order to a consumer in date order, the ones that arrive
+ * early are kept until every group before them is collected.
+ * <p>
+ * At most a window of groups past the next one is kept: a lane completing a group further ahead waits until the groups
+ * before it are handed over, so the summaries held (and lost by a crash) don't grow with the history. The wait is a
+ * managed block, so a lane running on a fork join pool lets it start a spare worker instead of starving the others.
+ */
+final class Reorder {
+
+    private final Summary[] pending;
+    private final int window;
+    private final Consumer<Summary> consumer;
+
+    // Index of the next summary to be handed to the consumer
+    private int next;
+
+    // Set once a lane failed, the waiting ones give up
+    private boolean aborted;
+
+    Reorder(int size, int window, Consumer<Summary> consumer) {
+        this.pending = new Summary[size];
+        this.window = window;
+        this.consumer = consumer;
+    }
+
+    void complete(int index, Summary summary) throws InterruptedException {
+        // the next group is always inside the window, so the lane collecting it never waits
+        ForkJoinPool.managedBlock(new Window(index));
+
+        synchronized (this) {
+            // the window only moves forward, it still holds the group once the block is released
+            if (aborted) {
+                return;
+            }
+
+            pending[index] = summary;
+
+            if (index != next) {
+                return;
+            }
+
+            try {
+                while (next < pending.length && pending[next] != null) {
+                    consumer.accept(pending[next]);
+
+                    pending[next++] = null;
+                }
+            } finally {
+                notifyAll();
+            }
+        }
+    }
+
+    synchronized void abort() {
+        aborted = true;
+
+        notifyAll();
+    }
+
+    // Blocks a lane while its group is past the window
+    private final class Window implements ForkJoinPool.ManagedBlocker {
+
+        private final int index;
+
+        Window(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            synchronized (Reorder.this) {
+                return index < next + window || aborted;
+            }
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            synchronized (Reorder.this) {
+                while (index >= next + window && !aborted) {
+                    Reorder.this.wait();
+                }
+            }
+
+            return true;
+        }
+    }
+}
@@ -3,28 +3,51 @@ package br.unb.cic.js.walker;
 import br.unb.cic.js.date.Formatter;
 import br.unb.cic.js.date.Interval;
 import br.unb.cic.js.miner.JSParser;
-import br.unb.cic.js.miner.JSVisitor;
+import br.unb.cic.js.miner.JavaScriptParser;
+import br.unb.cic.js.miner.Mode;
+import br.unb.cic.js.miner.ParseBudgetException;
+import br.unb.cic.js.miner.detectors.Detectors;
 import br.unb.cic.js.miner.metrics.Metric;
+import br.unb.cic.js.miner.metrics.MetricVector;
+import br.unb.cic.js.miner.metrics.Phase;
+import br.unb.cic.js.miner.metrics.Profile;
 import br.unb.cic.js.miner.metrics.Profiler;
 import br.unb.cic.js.miner.metrics.Summary;
-import br.unb.cic.js.walker.rules.DirectoriesRule;
+import br.unb.cic.js.walker.cache.BlobCache;
+import br.unb.cic.js.walker.cache.BlobStore;
+import br.unb.cic.js.walker.exception.RevisionNotFoundException;
+import br.unb.cic.js.walker.monitor.Monitor;
+import br.unb.cic.js.walker.rules.GeneratedPolicy;
+import br.unb.cic.js.walker.rules.GeneratedRule;
 import lombok.Builder;
 import lombok.val;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.file.FileVisitOption;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * This class represents a git project to be analyzed.
@@ -36,10 +59,73 @@ public final class RepositoryWalker {
     public final String project;
     public final Path path;
 
+    // Read the files straight from the git object database instead of checking out each revision
+    public final boolean checkoutFree;
+
     private final List<Summary> summaries = Collections.synchronizedList(new ArrayList<>());
 
+    // Parser shared by every repository, so its prediction caches stay warm
+    @Builder.Default
+    public final JSParser parser = new JSParser();
+
+    // Scheduler shared by every repository to analyze the files, a pool is created for each commit group when it is null
+    public final ExecutorService executor;
+
+    // Persistent metrics of blobs shared by every repository, it may be null
+    public final BlobStore store;
+
     private Repository repository;
 
+    // Compute each commit group from the files that changed since the previous one
+    public final boolean incremental;
+
+    // Metrics of every blob already parsed in this repository
+    private BlobCache cache;
+
+    // Where the time of the current traversal goes
+    private Profile profile;
+
+    // Commit groups collected at the same time, it only applies when reading from the object database
+    @Builder.Default
+    public final int parallelGroups = 1;
+
+    // Files larger than this many bytes aren't parsed, 0 for no limit
+    public final long maxFileSize;
+
+    // Directory where the commit index of the repository is kept, it is only built in memory when null
+    public final Path indexes;
+
+    // Parse the files, or only count their tokens
+    @Builder.Default
+    public final Mode mode = Mode.PARSER;
+
+    // What happens to the generated and minified files, see GeneratedRule
+    @Builder.Default
+    public final GeneratedPolicy generated = GeneratedPolicy.PARSE;
+
+    // Live progress of the job, see MinerMXBean
+    @Builder.Default
+    public final Monitor monitor = new Monitor();
+
+    // Progress of the current traversal
+    private Monitor.Project progress;
+
+    // Files larger than this many bytes are mapped instead of read when checked out
+    private static final long MAP_THRESHOLD = 1 << 16;
+
+    // Files in flight for each thread analyzing a revision
+    private static final int WINDOW = 4;
+
+    // Commit groups a lane collects one after the other in incremental mode, starting from a fresh snapshot
+    private static final int BLOCK = 16;
+
+    // Blocks each lane may run ahead of the next group handed to the report
+    private static final int AHEAD = 2;
+
+    // Executor of the files of this repository during a traversal, and how many of them may be in flight
+    private ExecutorService pool;
+    private int window;
+
     /**
      * Traverse the git project from an initial date to an end date.
      *
@@ -49,69 +135,106 @@ public final class RepositoryWalker {
      * @throws Exception
      */
     public List<Summary> traverse(final Interval interval, final int steps, final int threads) throws Exception {
+        traverse(interval, steps, threads, null, summaries::add);
+
+        return summaries;
+    }
+
+    /**
+     * Traverse the git project handing each commit group to a consumer as soon as it is collected, in date order.
+     *
+     * @param interval The delta date of the traversal
+     * @param steps    How many days should the traverse use to group a set of commits?
+     * @param threads  How many threads to use when analyzing a revision
+     * @param after    Day of the last group already collected by a previous run, groups up to it are skipped (may be null)
+     * @param consumer Receives the summary of every commit group
+     * @throws Exception
+     */
+    public void traverse(final Interval interval, final int steps, final int threads, final Date after, final Consumer<Summary> consumer) throws Exception {
+        open(threads);
+
+        try {
+            traverse(interval, steps, after, consumer);
+        } finally {
+            close();
+        }
+    }
+
+    private void traverse(final Interval interval, final int steps, final Date after, final Consumer<Summary> consumer) throws Exception {
         logger.info("{} -- processing project", project);
 
         repository = FileRepositoryBuilder.create(path.toAbsolutePath().resolve(".git").toFile());
+        cache = new BlobCache(store);
+        profile = new Profile();
 
-        val head = RepositoryWalkerGit.head(repository);
-        val revisions = RepositoryWalkerGit.revisions(repository, head, interval);
+        val head = RepositoryWalkerGit.head(repository, !checkoutFree);
+        val index = index(head);
 
-        val commits = new HashMap<Date, ObjectId>();
-        val commitDates = new ArrayList<Date>();
+        // the groups are sampled from the last commit of the interval backwards, see CommitIndex.sample
+        var groups = index.sample(interval.begin, interval.end, steps);
 
-        Date previous = null;
+        if (after != null) {
+            val calendar = Calendar.getInstance();
 
-        // fill the commits map with commits that will be analyzed given that they
-        // belong to the defined interval
-        for (val revision : revisions) {
-            val author = revision.getAuthorIdent();
-            val current = author.getWhen();
+            // reports only keep the day of a group
+            calendar.setTime(after);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            calendar.add(Calendar.DATE, 1);
 
-            if (current.compareTo(interval.begin) >= 0 && current.compareTo(interval.end) <= 0) {
-                // only add commits that fit the interval
-                if (previous == null || Interval.diff(current, previous, Interval.Unit.Days) >= steps) {
-                    commitDates.add(current);
+            val resume = index.from(calendar.getTime());
 
-                    previous = current;
-                }
+            groups = Arrays.stream(groups).filter(group -> group >= resume).toArray();
 
-                commits.put(current, revision.toObjectId());
-            }
+            logger.info("{} -- resuming after {}", project, Formatter.format(after));
         }
 
-        Collections.sort(commitDates);
-
         var traversed = 0;
 
-        val totalGroups = commitDates.size();
-        val totalCommits = commits.size();
+        val totalGroups = groups.length;
+        val totalCommits = index.count(interval.begin, interval.end);
 
         logger.info("{} -- number of commits {} ", project, totalCommits);
         logger.info("{} -- number of groups {} ", project, totalGroups);
 
+        progress.groups(totalGroups);
+
         val profiler = new Profiler();
 
-        for (Date current : commitDates) {
-            traversed++;
+        if (parallelGroups > 1 && checkoutFree && totalGroups > 1) {
+            parallel(index, groups, profiler, consumer);
+        } else {
+            val lane = new Lane();
+
+            for (val group : groups) {
+                traversed++;
 
-            profiler.start();
+                profiler.start();
 
-            val summary = collect(head, current, commits, threads);
+                val summary = collect(index.date(group), index.id(group), lane);
 
-            profiler.stop();
+                profiler.stop();
 
-            logger.info("{} -- collected commit group {} of {} (took {}ms to collect)", project, traversed, totalGroups, profiler.last());
+                logger.info("{} -- collected commit group {} of {} (took {}ms to collect, parser cache with {} states)", project, traversed, totalGroups, profiler.last(), parser.cacheSize());
 
-            summaries.add(summary);
+                val writing = System.nanoTime();
 
+                consumer.accept(summary);
+
+                profile.record(Phase.WRITE, System.nanoTime() - writing);
+                progress.group();
+            }
         }
 
         val average = profiler.average();
         val total = (double) profiler.total() / 1000.0;
 
         logger.info("{} -- finished, took {}ms in average to collect each commit group and {}s in total", project, average, total);
+        logger.info("{} -- parsed {} distinct files, reused {} already parsed ones", project, cache.misses(), cache.hits());
 
-        return summaries;
+        cache.clear();
     }
 
     /**
@@ -124,135 +247,629 @@ public final class RepositoryWalker {
      * @throws Exception
      */
     public List<Summary> traverse(final Interval interval, final String hash, final int threads) throws Exception {
+        traverse(interval, hash, threads, summaries::add);
+
+        return summaries;
+    }
+
+    /**
+     * Traverse the git project to look for a given hash, handing the summary of that revision to a consumer.
+     */
+    public void traverse(final Interval interval, final String hash, final int threads, final Consumer<Summary> consumer) throws Exception {
+        open(threads);
+
+        try {
+            traverse(interval, hash, consumer);
+        } finally {
+            close();
+        }
+    }
+
+    private void traverse(final Interval interval, final String hash, final Consumer<Summary> consumer) throws Exception {
         logger.info("{} -- processing project for a single revision", project);
 
         repository = FileRepositoryBuilder.create(path.toAbsolutePath().resolve(".git").toFile());
+        cache = new BlobCache(store);
+        profile = new Profile();
+
+        val head = RepositoryWalkerGit.head(repository, !checkoutFree);
+        val index = index(head);
+        val position = index.find(hash);
 
-        val head = RepositoryWalkerGit.head(repository);
-        val revisions = RepositoryWalkerGit.revisions(repository, head, interval);
+        if (position < 0) {
+            throw new RevisionNotFoundException(hash);
+        }
 
-        val commits = new HashMap<Date, ObjectId>();
+        progress.groups(1);
 
-        for (val revision : revisions) {
-            val id = revision.toObjectId();
-            val commit = repository.parseCommit(id).getId().toString().split(" ")[1];
+        // collect only one summary
+        val summary = collect(index.date(position), index.id(position), new Lane());
+        val writing = System.nanoTime();
 
-            if (commit.equals(hash)) {
-                val author = revision.getAuthorIdent();
-                val current = author.getWhen();
+        consumer.accept(summary);
 
-                commits.put(current, revision.toObjectId());
-                break;
+        profile.record(Phase.WRITE, System.nanoTime() - writing);
+        progress.group();
+    }
+
+    /**
+     * Returns the time spent on each phase of the last traversal and the slowest files in it.
+     */
+    public Profile profile() {
+        return profile;
+    }
+
+    /**
+     * Collects the commit groups on several lanes at the same time, handing their summaries to the consumer in date
+     * order. Each lane takes the next block of dates that wasn't collected yet: in incremental mode a block has several
+     * groups, the first one computed from a fresh snapshot and the others from the previous one, otherwise it has a
+     * single group. Lanes wait instead of running more than a few blocks ahead of the report.
+     */
+    private void parallel(CommitIndex index, int[] groups, Profiler profiler, Consumer<Summary> consumer) throws Exception {
+        val lanes = Math.min(parallelGroups, groups.length);
+        val total = groups.length;
+
+        // the lanes wait for their files, so they can only share the executor if waiting on it runs other tasks
+        val runner = executor != null ? executor : Executors.newFixedThreadPool(lanes);
+
+        val block = incremental ? BLOCK : 1;
+        val blocks = (total + block - 1) / block;
+
+        // only handing the summary over is the write, the wait of a lane for the ones before it isn't
+        val reorder = new Reorder(total, AHEAD * lanes * block, summary -> {
+            val writing = System.nanoTime();
+
+            consumer.accept(summary);
+
+            profile.record(Phase.WRITE, System.nanoTime() - writing);
+        });
+        val next = new AtomicInteger();
+        val traversed = new AtomicInteger();
+        val failed = new AtomicBoolean();
+
+        val tasks = new ArrayList<Future<?>>();
+
+        logger.info("{} -- collecting {} commit groups at a time", project, lanes);
+
+        for (int l = 0; l < lanes; l++) {
+            tasks.add(runner.submit(() -> {
+                try {
+                    for (var b = next.getAndIncrement(); b < blocks && !failed.get(); b = next.getAndIncrement()) {
+                        val lane = new Lane();
+
+                        for (int i = b * block; i < Math.min((b + 1) * block, total) && !failed.get(); i++) {
+                            val start = System.currentTimeMillis();
+                            val summary = collect(index.date(groups[i]), index.id(groups[i]), lane);
+                            val elapsed = System.currentTimeMillis() - start;
+
+                            profiler.add(elapsed);
+
+                            logger.info("{} -- collected commit group {} of {} (took {}ms to collect, parser cache with {} states)", project, traversed.incrementAndGet(), total, elapsed, parser.cacheSize());
+
+                            reorder.complete(i, summary);
+
+                            progress.group();
+                        }
+                    }
+                } catch (Exception ex) {
+                    failed.set(true);
+                    reorder.abort();
+                    throw ex;
+                }
+
+                return null;
+            }));
+        }
+
+        try {
+            for (val task : tasks) {
+                task.get();
             }
+        } finally {
+            if (runner != executor) {
+                runner.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Loads the commit index of the repository from the indexes directory, the history is only walked again when the
+     * head changes.
+     */
+    private CommitIndex index(ObjectId head) throws IOException {
+        val start = System.currentTimeMillis();
+        val index = CommitIndex.open(repository, head, indexes != null ? indexes.resolve(project + ".commits") : null);
+
+        logger.info("{} -- commit index with {} commits (took {}ms)", project, index.size(), System.currentTimeMillis() - start);
+
+        return index;
+    }
+
+    /**
+     * Starts the executor that analyzes the files of this repository for the whole traversal, unless a shared one was
+     * given.
+     */
+    private void open(int threads) {
+        pool = executor != null ? executor : Executors.newFixedThreadPool(threads);
+        window = WINDOW * (pool instanceof ForkJoinPool ? ((ForkJoinPool) pool).getParallelism() : threads);
+
+        monitor.register(pool);
+        progress = monitor.start(project);
+    }
+
+    private void close() {
+        monitor.unregister(pool);
+        monitor.finish(progress);
+
+        if (pool != executor) {
+            pool.shutdown();
         }
 
-        val current = commits.keySet().stream().findFirst().get();
+        pool = null;
+    }
 
-        // collect only one summary
-        summaries.add(collect(head, current, commits, threads));
+    // A sequence of commit groups collected one after the other, each one may be computed from the previous snapshot
+    private static final class Lane {
+        private Snapshot previous;
+    }
 
-        return summaries;
+    // The failure of a content classified as generated, which carries its size to the vector of the failure
+    private static final class GeneratedFailure extends Exception {
+        private final long size;
+
+        private GeneratedFailure(Exception cause, long size) {
+            super(cause);
+            this.size = size;
+        }
     }
 
     /**
      * Collect metrics about a given commit interval
      */
-    private Summary collect(ObjectId head, Date current, Map<Date, ObjectId> commits, int threads) {
-        val id = commits.get(current);
+    private Summary collect(Date current, ObjectId id, Lane lane) {
+        val start = System.nanoTime();
         val summary = Summary.builder();
 
         val metrics = new ArrayList<Metric<?>>();
 
         metrics.add(Metric.builder().name("project").value(project).build());
-        metrics.add(Metric.builder().name("date (dd-mm-yyyy)").value(Formatter.format.format(current)).build());
+        metrics.add(Metric.builder().name("date (dd-mm-yyyy)").value(Formatter.format(current)).build());
 
         var errors = new HashMap<String, String>();
 
-        try (Git git = new Git(repository)) {
+        try {
             val commit = repository.parseCommit(id).getId().toString().split(" ")[1];
 
             metrics.add(Metric.builder().name("revision").value(commit).build());
 
+            if (incremental && lane.previous != null) {
+                lane.previous = difference(lane.previous, id);
+            } else {
+                lane.previous = checkoutFree ? enumerate(id) : checkout(id);
+            }
+
+            for (int i = 0; i < MetricVector.columns.length; i++) {
+                // the columns the mode can't compute are reported as unavailable instead of 0
+                val value = mode.available(i) ? (Object) lane.previous.totals.get(i) : "NA";
+
+                metrics.add(Metric.builder().name(MetricVector.columns[i]).value(value).build());
+            }
+
+            lane.previous.failures.forEach((file, reason) -> errors.put(file + "-" + commit, reason));
+
+            summary.revision(commit)
+                    .totals(lane.previous.totals);
+        } catch (Exception ex) {
+            val commit = id.name();
+
+            logger.error("failed to collect data for project {} on revision: {}", project, commit);
+            ex.printStackTrace();
+
+            errors.put("exception", String.valueOf(ex.getMessage()));
+
+            // the next commit group can't be computed from an incomplete one
+            lane.previous = null;
+        } finally {
+            profile.record(Phase.GROUP, System.nanoTime() - start);
+
+            summary.project(project)
+                    .date(current)
+                    .metrics(metrics)
+                    .errors(errors);
+        }
+
+        return summary.build();
+    }
+
+    /**
+     * Checks out a revision on the working tree and analyzes every javascript file in it.
+     */
+    private Snapshot checkout(ObjectId id) throws Exception {
+        val failures = new ConcurrentHashMap<String, String>();
+        val tasks = new FileTasks(pool, window, new MetricVector());
+
+        val checkout = System.nanoTime();
+
+        try (Git git = new Git(repository)) {
             git.reset().setMode(ResetCommand.ResetType.HARD).call();
             git.checkout().setName(id.getName()).call();
+        }
+
+        profile.record(Phase.CHECKOUT, System.nanoTime() - checkout);
+
+        val attributes = path.resolve(Constants.DOT_GIT_ATTRIBUTES);
+        val rule = Files.isRegularFile(attributes) ? GeneratedRule.of(Files.readAllBytes(attributes)) : GeneratedRule.NONE;
 
-            val walker = Files.walk(path, FileVisitOption.FOLLOW_LINKS);
-            val files = walker.collect(Collectors.toList())
-                    .stream()
-                    .filter(DirectoriesRule::walk)
-                    .filter(Files::isRegularFile)
-                    .filter(file -> file.toString().endsWith(".js"))
-                    .collect(Collectors.toList());
+        // the excluded directories are skipped as a whole while the files are handed out
+        try (val files = new WorkingTreeFiles(path)) {
+            var enumerating = System.nanoTime();
 
-            walker.close();
+            while (files.hasNext()) {
+                val p = files.next();
 
-            metrics.add(Metric.builder().name("files").value(files.size()).build());
+                profile.record(Phase.ENUMERATE, System.nanoTime() - enumerating);
 
-            val parser = new JSParser();
-            val visitor = new JSVisitor();
+                tasks.submit(() -> {
+                    val reading = System.nanoTime();
 
-            val tasks = new ArrayList<Future<?>>(threads);
-            val pool = Executors.newFixedThreadPool(threads);
+                    try (val channel = FileChannel.open(p, StandardOpenOption.READ)) {
+                        val size = channel.size();
+                        val verdict = rule.path(path.relativize(p).toString());
 
-            for (Path p : files) {
-                Runnable task = () -> {
-                    try {
-                        val content = new String(Files.readAllBytes(p));
-                        val program = parser.parse(content);
+                        if (unparsed(verdict)) {
+                            return MetricVector.generated(size, generated == GeneratedPolicy.COUNT);
+                        }
 
-                        program.accept(visitor);
+                        if (oversized(size)) {
+                            return skip(p.toString(), size, failures);
+                        }
 
+                        val content = size > MAP_THRESHOLD ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : read(channel, (int) size);
+
+                        // hashing the content gives the same id git would give to the blob
+                        val blob = RepositoryWalkerGit.id(content.duplicate());
+
+                        profile.record(Phase.READ, System.nanoTime() - reading);
+
+                        return analyze(blob, p.toString(), verdict, size, failures, true, () -> measure(content.duplicate(), verdict));
                     } catch (Exception ex) {
-                        errors.put(p + "-" + commit, ex.getMessage());
+                        failures.put(p.toString(), String.valueOf(ex.getMessage()));
+
+                        return MetricVector.failure();
                     }
-                };
+                });
 
-                tasks.add(pool.submit(task));
+                enumerating = System.nanoTime();
             }
+        }
 
-            for (val task : tasks) {
-                task.get();
+        return new Snapshot(id, tasks.await(), failures, null);
+    }
+
+    /**
+     * Analyzes every javascript file of a revision reading them from the object database.
+     */
+    private Snapshot enumerate(ObjectId id) throws Exception {
+        val failures = new ConcurrentHashMap<String, String>();
+        val tasks = new FileTasks(pool, window, new MetricVector());
+
+        val attributes = RepositoryWalkerGit.attributes(repository, id);
+        val rule = rule(attributes);
+
+        val enumerating = System.nanoTime();
+        val submitting = new long[1];
+
+        RepositoryWalkerGit.files(repository, id, blob -> {
+            val start = System.nanoTime();
+
+            tasks.submit(() -> read(blob, rule, failures, true));
+
+            submitting[0] += System.nanoTime() - start;
+        });
+
+        // the tree walk only, not the time spent waiting to submit the files
+        profile.record(Phase.ENUMERATE, System.nanoTime() - enumerating - submitting[0]);
+
+        return new Snapshot(id, tasks.await(), failures, attributes);
+    }
+
+    /**
+     * Computes the metrics of a revision from the ones of a previous revision, only the files that were removed,
+     * added or modified in between are taken into account.
+     */
+    private Snapshot difference(Snapshot previous, ObjectId id) throws Exception {
+        val attributes = RepositoryWalkerGit.attributes(repository, id);
+
+        // the files that didn't change may be classified in another way
+        if (!Objects.equals(attributes, previous.attributes)) {
+            logger.debug("{} -- .gitattributes changed since revision {}, analyzing every file", project, previous.commit.name());
+
+            return enumerate(id);
+        }
+
+        val rule = rule(attributes);
+        val failures = new ConcurrentHashMap<String, String>(previous.failures);
+
+        val totals = new MetricVector().add(previous.totals);
+        val tasks = new FileTasks(pool, window, totals);
+
+        val enumerating = System.nanoTime();
+        val submitting = new long[1];
+
+        val changes = RepositoryWalkerGit.changes(repository, previous.commit, id, change -> {
+            val start = System.nanoTime();
+
+            if (change.before != null) {
+                // the previous version was already analyzed, so it comes from the cache and isn't counted again
+                totals.subtract(read(change.before, rule, new HashMap<>(), false));
+                failures.remove(change.before.path);
             }
 
-            pool.shutdown();
+            if (change.after != null) {
+                tasks.submit(() -> read(change.after, rule, failures, true));
+            }
 
-            metrics.add(Metric.builder().name("async-declarations").value(visitor.getTotalAsyncDeclarations().get()).build());
-            metrics.add(Metric.builder().name("await-declarations").value(visitor.getTotalAwaitDeclarations().get()).build());
-            metrics.add(Metric.builder().name("const-declarations").value(visitor.getTotalConstDeclaration().get()).build());
-            metrics.add(Metric.builder().name("class-declarations").value(visitor.getTotalClassDeclarations().get()).build());
-            metrics.add(Metric.builder().name("arrow-function-declarations").value(visitor.getTotalArrowDeclarations().get()).build());
-            metrics.add(Metric.builder().name("let-declarations").value(visitor.getTotalLetDeclarations().get()).build());
-            metrics.add(Metric.builder().name("export-declarations").value(visitor.getTotalExportDeclarations().get()).build());
-            metrics.add(Metric.builder().name("yield-declarations").value(visitor.getTotalYieldDeclarations().get()).build());
-            metrics.add(Metric.builder().name("import-statements").value(visitor.getTotalImportStatements().get()).build());
-            metrics.add(Metric.builder().name("promise-declarations").value(visitor.getTotalNewPromises().get()).build());
-            metrics.add(Metric.builder().name("promise-all-and-then").value(visitor.getTotalPromiseAllAndThenIdiom().get()).build());
-            metrics.add(Metric.builder().name("default-parameters").value(visitor.getTotalDefaultParameters().get()).build());
-            metrics.add(Metric.builder().name("rest-statements").value(visitor.getTotalRestStatements().get()).build());
-            metrics.add(Metric.builder().name("spread-arguments").value(visitor.getTotalSpreadArguments().get()).build());
-            metrics.add(Metric.builder().name("array-destructuring").value(visitor.getTotalArrayDestructuring().get()).build());
-            metrics.add(Metric.builder().name("object-destructuring").value(visitor.getTotalObjectDestructuring().get()).build());
-            metrics.add(Metric.builder().name("errors").value(errors.size()).build());
-            metrics.add(Metric.builder().name("statements").value(visitor.getTotalStatements().get()).build());
-
-            summary.date(current)
-                    .revision(head.toString())
-                    .metrics(metrics)
-                    .errors(errors);
-        } catch (Exception ex) {
-            val commit = commits.get(current).toString().split(" ")[1];
+            submitting[0] += System.nanoTime() - start;
+        });
 
-            logger.error("failed to collect data for project {} on revision: {}", project, commit);
-            ex.printStackTrace();
+        profile.record(Phase.ENUMERATE, System.nanoTime() - enumerating - submitting[0]);
+
+        tasks.await();
+
+        logger.debug("{} -- {} files changed since revision {}", project, changes, previous.commit.name());
+
+        return new Snapshot(id, totals, failures, attributes);
+    }
+
+    /**
+     * Reads the generated files rule of a revision from the blob of its root .gitattributes.
+     */
+    private GeneratedRule rule(ObjectId attributes) throws IOException {
+        if (attributes == null) {
+            return GeneratedRule.NONE;
+        }
+
+        return GeneratedRule.of(repository.open(attributes, Constants.OBJ_BLOB).getCachedBytes());
+    }
+
+    private MetricVector read(RepositoryWalkerGit.Blob blob, GeneratedRule rule, Map<String, String> failures, boolean counted) {
+        val verdict = rule.path(blob.path);
+
+        var size = -1L;
+
+        if (maxFileSize > 0 || Boolean.TRUE.equals(verdict)) {
+            // object readers aren't thread safe, so each task opens its own
+            try (val reader = repository.newObjectReader()) {
+                size = reader.getObjectSize(blob.id, Constants.OBJ_BLOB);
+
+                if (unparsed(verdict)) {
+                    return MetricVector.generated(size, generated == GeneratedPolicy.COUNT);
+                }
+
+                if (oversized(size)) {
+                    return skip(blob.path, size, failures);
+                }
+            } catch (Exception ex) {
+                failures.put(blob.path, String.valueOf(ex.getMessage()));
+
+                return MetricVector.failure();
+            }
+        }
+
+        return analyze(blob.id, blob.path, verdict, size, failures, counted, () -> {
+            val reading = System.nanoTime();
+
+            try (val reader = repository.newObjectReader()) {
+                val loader = reader.open(blob.id, Constants.OBJ_BLOB);
+
+                // small blobs are already inflated in memory, only the large ones are streamed
+                if (loader.isLarge()) {
+                    // a first pass classifies the blob, holding only its head and tail, and a second one parses it
+                    boolean detected;
+
+                    try (val stream = loader.openStream()) {
+                        detected = GeneratedRule.content(stream);
+                    }
+
+                    profile.record(Phase.READ, System.nanoTime() - reading);
+
+                    return measure(loader.getSize(), detected, verdict, () -> {
+                        try (val channel = Channels.newChannel(loader.openStream())) {
+                            return measure(channel, loader.getSize());
+                        }
+                    });
+                }
+
+                val content = ByteBuffer.wrap(loader.getCachedBytes());
+
+                profile.record(Phase.READ, System.nanoTime() - reading);
+
+                return measure(content, verdict);
+            }
+        });
+    }
+
+    // Whether a file classified as generated by its path is left out without being read
+    private boolean unparsed(Boolean verdict) {
+        return Boolean.TRUE.equals(verdict) && generated != GeneratedPolicy.PARSE;
+    }
+
+    private boolean oversized(long size) {
+        return maxFileSize > 0 && size > maxFileSize;
+    }
+
+    /**
+     * Tags a file that is too large to be parsed, it is counted as a file but not as an error. The reason is still
+     * listed with the errors, so the report tells which files weren't measured.
+     */
+    private MetricVector skip(String file, long size, Map<String, String> failures) {
+        failures.put(file, "skipped, the file has " + size + " bytes and the limit is " + maxFileSize);
 
-            errors.put("exception", ex.getMessage());
+        return MetricVector.skipped();
+    }
+
+    private static ByteBuffer read(FileChannel channel, int size) throws IOException {
+        val content = ByteBuffer.allocate(size);
+
+        while (content.hasRemaining()) {
+            if (channel.read(content) < 0) {
+                break;
+            }
+        }
+
+        return content.flip();
+    }
+
+    /**
+     * Computes the metric vector of a single file, it is only parsed if its blob hasn't been seen before.
+     *
+     * @param blob    The git blob id of the file content
+     * @param file    The path used to report errors of this file
+     * @param verdict How the file is classified by its path, null if only its content tells whether it is generated
+     * @param size    The size of the file, it is only needed when the verdict is known
+     * @param errors  The files of the revision that failed to be analyzed
+     * @param counted Whether the file is reported in the progress and profile, the previous versions subtracted from
+     *                an incremental snapshot aren't
+     * @param measure Measures the file content when it isn't cached
+     */
+    private MetricVector analyze(ObjectId blob, String file, Boolean verdict, long size, Map<String, String> errors, boolean counted, Callable<MetricVector> measure) {
+        if (counted) {
+            progress.analyzed();
+        }
+
+        // a generated content is only left out if its path doesn't tell otherwise
+        val unparsed = verdict == null && generated != GeneratedPolicy.PARSE;
+
+        if (unparsed) {
+            val held = cache.held(blob);
+
+            if (held != null) {
+                return held;
+            }
+        }
+
+        val cached = cache.get(blob);
+
+        // a blob parsed by an execution with another policy
+        if (cached != null && unparsed && cached.get(MetricVector.GENERATED) > 0) {
+            return MetricVector.generated(cached.get(MetricVector.GENERATED_KIB) * 1024L, generated == GeneratedPolicy.COUNT);
+        }
+
+        if (cached != null) {
+            val failure = cache.failure(blob);
+
+            if (failure != null) {
+                errors.put(file, failure);
+            }
+
+            return marked(cached, verdict, size);
+        }
+
+        val start = System.nanoTime();
+
+        try {
+            val vector = measure.call();
+
+            if (unparsed && vector.get(MetricVector.GENERATED) > 0) {
+                cache.hold(blob, vector);
+
+                return vector;
+            }
+
+            cache.put(blob, vector);
+            progress.parsed(false);
+
+            return marked(vector, verdict, size);
+        } catch (Exception thrown) {
+            // a generated content that failed to parse keeps its marks, so a later run with another policy sees it
+            val detected = thrown instanceof GeneratedFailure ? (GeneratedFailure) thrown : null;
+            val ex = detected != null ? (Exception) detected.getCause() : thrown;
+            val failure = detected != null ? MetricVector.failure().marked(true, detected.size) : MetricVector.failure();
+
+            val reason = String.valueOf(ex.getMessage());
+
+            // invalid files are often the slowest ones to parse
+            if (!(ex instanceof IOException)) {
+                profile.record(Phase.LEX, parser.lexTime());
+
+                if (mode == Mode.PARSER) {
+                    profile.record(Phase.PARSE, parser.parseTime());
+                }
+            }
+
+            // a file out of budget may parse on a less loaded run or with other limits, unlike an invalid one
+            if (ex instanceof ParseBudgetException) {
+                cache.skip(blob, reason);
+            } else {
+                cache.fail(blob, reason, failure);
+            }
+
+            errors.put(file, reason);
+            progress.parsed(true);
+
+            return marked(failure, verdict, size);
         } finally {
-            summary.date(current)
-                    .revision(head.toString())
-                    .metrics(metrics)
-                    .errors(errors);
+            if (counted) {
+                profile.file(file, System.nanoTime() - start);
+            }
         }
+    }
 
-        return summary.build();
+    // The path of a file overrides what its content tells
+    private static MetricVector marked(MetricVector vector, Boolean verdict, long size) {
+        return verdict == null ? vector : vector.marked(verdict, size);
+    }
+
+    /**
+     * Parses and visits the content of a file, or only counts its tokens in the lexer mode. A generated content isn't
+     * parsed unless the policy or the path of the file says so.
+     */
+    private MetricVector measure(ByteBuffer content, Boolean verdict) throws Exception {
+        return measure(content.remaining(), GeneratedRule.content(content), verdict, () -> mode == Mode.LEXER ? lexed(parser.lex(content)) : visit(parser.parse(content)));
+    }
+
+    // Measures a file whose content was already classified, a generated one is only parsed if the policy asks for it
+    private MetricVector measure(long size, boolean detected, Boolean verdict, Callable<MetricVector> parse) throws Exception {
+        if (detected && verdict == null && generated != GeneratedPolicy.PARSE) {
+            return MetricVector.generated(size, generated == GeneratedPolicy.COUNT);
+        }
+
+        if (!detected) {
+            return parse.call();
+        }
+
+        try {
+            return parse.call().marked(true, size);
+        } catch (Exception ex) {
+            throw new GeneratedFailure(ex, size);
+        }
+    }
+
+    private MetricVector measure(ReadableByteChannel content, long size) throws Exception {
+        if (mode == Mode.LEXER) {
+            return lexed(parser.lex(content, size));
+        }
+
+        return visit(parser.parse(content, size));
+    }
+
+    private MetricVector lexed(MetricVector vector) {
+        profile.record(Phase.LEX, parser.lexTime());
+
+        return vector;
+    }
+
+    private MetricVector visit(JavaScriptParser.ProgramContext program) {
+        profile.record(Phase.LEX, parser.lexTime());
+        profile.record(Phase.PARSE, parser.parseTime());
+
+        val visiting = System.nanoTime();
+
+        // a single walk of the tree for every detector
+        val vector = Detectors.measure(program);
+
+        profile.record(Phase.VISIT, System.nanoTime() - visiting);
+
+        return vector;
     }
 }
@@ -1,22 +1,61 @@
 package br.unb.cic.js.walker;
 
-import br.unb.cic.js.date.Interval;
 import br.unb.cic.js.walker.exception.NoBranchFoundException;
+import br.unb.cic.js.walker.rules.DirectoriesRule;
 import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.val;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand;
 import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
-import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.nio.ByteBuffer;
 
 @NoArgsConstructor
 final class RepositoryWalkerGit {
 
-    public static ObjectId head(final Repository repository) throws Exception {
+    /**
+     * A javascript file as stored in the git object database, without being checked out.
+     */
+    @RequiredArgsConstructor
+    static final class Blob {
+        // path relative to the repository root
+        public final String path;
+
+        public final ObjectId id;
+    }
+
+    /**
+     * A javascript file that differs between two commits, a missing side means it was added or removed.
+     */
+    @RequiredArgsConstructor
+    static final class Change {
+        public final Blob before;
+
+        public final Blob after;
+    }
+
+    /**
+     * Receives the entries of a tree walk as they are found, so they don't need to be listed first.
+     */
+    interface Visitor<T> {
+        void visit(T entry) throws Exception;
+    }
+
+    /**
+     * Resolves the main branch of the repository.
+     *
+     * @param checkout If the main branch should also be checked out on the working tree
+     */
+    public static ObjectId head(final Repository repository, final boolean checkout) throws Exception {
         var mainBranch = "";
 
         try (val git = new Git(repository)) {
@@ -33,20 +72,115 @@ final class RepositoryWalkerGit {
                 throw new NoBranchFoundException();
             }
 
-            git.reset().setMode(ResetCommand.ResetType.HARD).call();
-            git.checkout().setName(mainBranch).call();
+            if (checkout) {
+                git.reset().setMode(ResetCommand.ResetType.HARD).call();
+                git.checkout().setName(mainBranch).call();
+            }
         }
 
-        return repository.resolve("refs/heads/" + mainBranch);
+        val local = repository.resolve("refs/heads/" + mainBranch);
+
+        if (local != null || checkout) {
+            return local;
+        }
+
+        // without a checkout the local branch may not exist, so fallback to the remote one
+        return repository.resolve("refs/remotes/origin/" + mainBranch);
     }
 
-    public static Iterable<RevCommit> revisions(final Repository repository, final ObjectId head, final Interval interval) throws Exception {
-        try (val git = new Git(repository)) {
-            return git.log()
-                    .add(head)
-                    .setRevFilter(CommitTimeRevFilter.between(interval.begin, interval.end))
-                    .setRevFilter(RevFilter.NO_MERGES)
-                    .call();
+    /**
+     * Visits the javascript files of a given commit by walking its tree in the object database, so nothing is
+     * written to the working tree. The excluded directories aren't entered.
+     *
+     * @param repository The git repository
+     * @param commit     The commit whose tree will be walked
+     * @param visitor    Receives the javascript blobs that aren't filtered out by {@link DirectoriesRule}
+     */
+    public static void files(final Repository repository, final ObjectId commit, final Visitor<Blob> visitor) throws Exception {
+        val tree = repository.parseCommit(commit).getTree();
+
+        try (val walk = new TreeWalk(repository)) {
+            walk.addTree(tree);
+            walk.setRecursive(true);
+            walk.setFilter(AndTreeFilter.create(DirectoriesRule.filter(), PathSuffixFilter.create(".js")));
+
+            while (walk.next()) {
+                val blob = blob(walk, 0);
+
+                if (blob != null) {
+                    visitor.visit(blob);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the javascript files that were added, removed or modified between two commits by walking both trees at
+     * the same time, subtrees that are identical in both commits aren't even entered.
+     *
+     * @param repository The git repository
+     * @param before     The commit used as the base of the comparison
+     * @param after      The commit compared against the base
+     * @param visitor    Receives the changes that aren't filtered out by {@link DirectoriesRule}
+     * @return The number of changes visited
+     */
+    public static int changes(final Repository repository, final ObjectId before, final ObjectId after, final Visitor<Change> visitor) throws Exception {
+        var changes = 0;
+
+        try (val walk = new TreeWalk(repository)) {
+            walk.addTree(repository.parseCommit(before).getTree());
+            walk.addTree(repository.parseCommit(after).getTree());
+            walk.setRecursive(true);
+            walk.setFilter(AndTreeFilter.create(new TreeFilter[]{TreeFilter.ANY_DIFF, DirectoriesRule.filter(), PathSuffixFilter.create(".js")}));
+
+            while (walk.next()) {
+                val old = blob(walk, 0);
+                val current = blob(walk, 1);
+
+                if (old != null || current != null) {
+                    visitor.visit(new Change(old, current));
+                    changes++;
+                }
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Returns the blob of the .gitattributes at the root of a commit, or null if it has none.
+     */
+    public static ObjectId attributes(final Repository repository, final ObjectId commit) throws Exception {
+        try (val walk = TreeWalk.forPath(repository, Constants.DOT_GIT_ATTRIBUTES, repository.parseCommit(commit).getTree())) {
+            return walk != null && walk.getFileMode(0) == FileMode.REGULAR_FILE ? walk.getObjectId(0) : null;
         }
     }
+
+    /**
+     * Computes the id git gives to a blob with a given content, without copying the content.
+     */
+    public static ObjectId id(final ByteBuffer content) {
+        val digest = Constants.newMessageDigest();
+
+        digest.update(Constants.encodedTypeString(Constants.OBJ_BLOB));
+        digest.update((byte) ' ');
+        digest.update(Constants.encodeASCII(content.remaining()));
+        digest.update((byte) 0);
+        digest.update(content);
+
+        return ObjectId.fromRaw(digest.digest());
+    }
+
+    // Returns the blob of the current entry on a given tree of the walk, or null if it isn't a file to be analyzed
+    private static Blob blob(final TreeWalk walk, final int tree) {
+        val mode = walk.getFileMode(tree);
+
+        // submodules (gitlinks) and symlinks have no javascript content to be parsed
+        if (mode != FileMode.REGULAR_FILE && mode != FileMode.EXECUTABLE_FILE) {
+            return null;
+        }
+
+        // the excluded directories were already skipped by the filter of the walk
+        return new Blob(walk.getPathString(), walk.getObjectId(tree));
+    }
 }
@@ -1,30 +1,30 @@
 package br.unb.cic.js.walker;
 
+import br.unb.cic.js.date.Formatter;
 import br.unb.cic.js.date.Interval;
-import br.unb.cic.js.miner.metrics.Summary;
+import br.unb.cic.js.walker.report.Report;
+import br.unb.cic.js.walker.report.ReportFormat;
 import lombok.Builder;
 import lombok.val;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Builder
 public final class RepositoryWalkerTask implements Runnable {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    // The report is the csv file generated by the program after all observations of a given project are finished.
+    // Directory of the csv report and errors file of the project, written while it is traversed
     public final Path output;
 
+    @Builder.Default
+    public final ReportFormat format = ReportFormat.CSV;
+
     public final RepositoryWalker walker;
 
     public final Interval interval;
@@ -37,58 +37,72 @@ public final class RepositoryWalkerTask implements Runnable {
     // Option to allow the walker to collect metrics about a single point in a given repository
     public final String hash;
 
+    // Drop the parser prediction caches once the project is traversed
+    public final boolean clearParserCache;
+
+    // Projects of the batch being traversed with the same parser, its caches are only dropped when none is left
+    @Builder.Default
+    public final AtomicInteger running = new AtomicInteger();
+
     @Override
     public void run() {
-        // build report and report errors file
-        val reportFile = Paths.get(output.toString(), walker.project + ".csv");
-        val reportErrors = Paths.get(output.toString(), walker.project + "-errors.txt");
+        running.incrementAndGet();
 
-        val content = new StringBuilder();
-        val errors = new StringBuilder();
-
-        try {
-            var summaries = Collections.synchronizedList(new ArrayList<Summary>());
+        val run = run(interval, steps, hash);
 
+        // rows and errors are appended to the report as each commit group is collected, a single revision always
+        // starts the report over since it isn't part of a traversal that could be resumed
+        try (val report = format.open(output, walker.project, resumable(run), walker.mode)) {
             if (hash.length() > 0) {
-                summaries = walker.traverse(interval, hash, threads);
+                walker.traverse(interval, hash, threads, report::write);
             } else {
-                summaries = walker.traverse(interval, steps, threads);
+                walker.traverse(interval, steps, threads, report.last(), report::write);
             }
 
-            summaries.forEach(s -> {
-                if (!s.values().isEmpty()) {
-                    content.append(s.values())
-                            .append("\n");
-                }
-
-                s.errors.forEach((k, v) -> {
-                    errors.append(k)
-                            .append("\n")
-                            .append(v)
-                            .append("\n-----------------------\n");
-                });
-            });
-
-            reportFile.toFile().createNewFile();
-            reportErrors.toFile().createNewFile();
-
-            try (val reportWriter = new BufferedWriter(new FileWriter(reportFile.toFile()));
-                 val errorsWriter = new BufferedWriter(new FileWriter(reportErrors.toFile()))) {
-
-                reportWriter.write(Summary.header());
-                reportWriter.write(content.toString());
-                reportWriter.flush();
-
-                errorsWriter.write(errors.toString());
-                errorsWriter.flush();
-            } catch (IOException ex) {
-                logger.error("failed to write on report/errors file for project {}", walker.project);
-                throw new RuntimeException(ex);
-            }
-        } catch (IOException ex) {
-            logger.error("failed to create a report/errors file for project {}", walker.project);
+            report.complete(run);
+
+            profile();
+        } catch (IOException | UncheckedIOException ex) {
+            logger.error("failed to write on report/errors file for project {}", walker.project);
         } catch (Exception ex) {
             logger.error("failed to traverse project {}, reason {}", walker.project, ex.getMessage());
+        } finally {
+            // the projects still running would lose the caches they are warming up
+            if (running.decrementAndGet() == 0 && clearParserCache) {
+                walker.parser.clearCache();
+            }
+        }
+    }
+
+    /**
+     * Describes the settings a project is traversed with, which are kept in the marker of a finished project. A batch
+     * only skips the projects finished with the same settings.
+     */
+    static String run(Interval interval, int steps, String hash) {
+        val dates = "interval " + Formatter.format(interval.begin) + " " + Formatter.format(interval.end);
+
+        return (hash.isEmpty() ? dates + ", steps " + steps : dates + ", revision " + hash) + "\n";
+    }
+
+    // A report finished with other settings has its groups sampled in another way, so it starts over
+    private boolean resumable(String run) throws IOException {
+        val completed = Report.completed(output, walker.project);
+
+        return hash.isEmpty() && (completed == null || completed.equals(run));
+    }
+
+    /**
+     * Prints where the time of the traversal went and writes it beside the report.
+     */
+    private void profile() {
+        val profile = walker.profile().format();
+
+        logger.info("{} -- profile\n{}", walker.project, profile);
+
+        try {
+            Files.writeString(output.resolve(walker.project + "-profile.txt"), profile);
+        } catch (IOException ex) {
+            logger.error("failed to write the profile of project {}", walker.project);
         }
     }
 }
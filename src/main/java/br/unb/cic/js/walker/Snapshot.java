@@ -0,0 +1,24 @@
+package br.unb.cic.js.walker;
+
+import br.unb.cic.js.miner.metrics.MetricVector;
+import lombok.RequiredArgsConstructor;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.Map;
+
+/**
+ * Snapshot is the state of a collected revision: the sum of the metrics of its files, the files that failed to be
+ * analyzed and the .gitattributes the generated files were classified with. It allows the next revision to be computed only from the files that changed in between.
+ */
+@RequiredArgsConstructor
+final class Snapshot {
+    public final ObjectId commit;
+
+    public final MetricVector totals;
+
+    // Map of file paths to the reason they failed to be analyzed
+    public final Map<String, String> failures;
+
+    // Blob of the root .gitattributes, null if the revision has none
+    public final ObjectId attributes;
+}
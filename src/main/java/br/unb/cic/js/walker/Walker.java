@@ -1,6 +1,14 @@
 package br.unb.cic.js.walker;
 
 import br.unb.cic.js.date.Interval;
+import br.unb.cic.js.miner.JSParser;
+import br.unb.cic.js.miner.Mode;
+import br.unb.cic.js.miner.detectors.Detectors;
+import br.unb.cic.js.walker.cache.BlobStore;
+import br.unb.cic.js.walker.monitor.Monitor;
+import br.unb.cic.js.walker.report.Report;
+import br.unb.cic.js.walker.report.ReportFormat;
+import br.unb.cic.js.walker.rules.GeneratedPolicy;
 import lombok.Builder;
 import lombok.val;
 import org.apache.logging.log4j.LogManager;
@@ -13,7 +21,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -26,26 +37,62 @@ public final class Walker {
 
     public final String path;
     public final String project;
+    // A csv file listing the projects to be mined in a single batch
+    public final String manifest;
     public final String hash;
     public final int steps;
     public final int projectThreads;
     public final int filesThreads;
+    // Size of a single work-stealing pool shared by projects and files, the fixed pools are used when it is 0
+    public final int threads;
+    public final boolean checkoutFree;
+    public final boolean blobStore;
+    public final boolean incremental;
+    public final int parallelGroups;
+    public final long maxFileSize;
+    public final long parserCacheLimit;
+    // Budget of the parse of a single file, 0 for no limit
+    public final long parseTimeout;
+    public final long maxTokens;
+    public final boolean parserCachePerProject;
+    @Builder.Default
+    public final Mode mode = Mode.PARSER;
+    @Builder.Default
+    public final GeneratedPolicy generated = GeneratedPolicy.PARSE;
+    @Builder.Default
+    public final ReportFormat format = ReportFormat.CSV;
     public final Date initialDate;
     public final Date endDate;
 
     public void traverse() {
         logger.info("initializing git traversal");
         logger.info(
-                "path: {} | project: {} | steps: {} | project threads: {} |  files threads: {} | initial date: {} | end date: {}",
+                "path: {} | project: {} | manifest: {} | steps: {} | project threads: {} |  files threads: {} | threads: {} | checkout free: {} | blob store: {} | incremental: {} | parallel groups: {} | max file size: {} | parser cache limit: {} | parse timeout: {}ms | max tokens: {} | mode: {} | generated: {} | format: {} | initial date: {} | end date: {}",
                 path,
                 project,
+                manifest,
                 steps,
                 projectThreads,
                 filesThreads,
+                threads,
+                checkoutFree,
+                blobStore,
+                incremental,
+                parallelGroups,
+                maxFileSize,
+                parserCacheLimit,
+                parseTimeout,
+                maxTokens,
+                mode,
+                generated,
+                format,
                 initialDate,
                 endDate
         );
 
+        logger.info("metrics counted by {} detectors: {}", Detectors.detectors().size(),
+                Detectors.detectors().stream().map(detector -> detector.getClass().getName()).collect(Collectors.joining(", ")));
+
         val f = new File(path);
         val p = Path.of(path);
 
@@ -61,7 +108,17 @@ public final class Walker {
             // checking a file attribute to verify if it's a directory is slow, be careful with the amount of
             // folders you'll be checking against.
 
-            if (project.isEmpty()) {
+            if (manifest != null && !manifest.isEmpty()) {
+                for (val name : manifest(Path.of(manifest))) {
+                    val repository = p.resolve(name);
+
+                    if (repository.resolve(".git").toFile().isDirectory()) {
+                        repositories.add(repository);
+                    } else {
+                        logger.warn("project {} of the manifest isn't a git repository in {}", name, p);
+                    }
+                }
+            } else if (project.isEmpty()) {
                 repositories.addAll(Files.find(p, 1, (path, attrs) -> {
                     val isDirectory = attrs.isDirectory();
                     val isGitDirectory = path.resolve(".git").toFile().isDirectory();
@@ -95,50 +152,119 @@ public final class Walker {
                 Files.createDirectory(output);
             }
 
+            val interval = Interval.builder()
+                    .begin(initialDate)
+                    .end(endDate)
+                    .build();
+
+            // a batch only mines the projects that weren't finished by a previous run with the same interval and
+            // steps, so it can simply be restarted
+            if (manifest != null && !manifest.isEmpty()) {
+                val total = repositories.size();
+                val run = RepositoryWalkerTask.run(interval, steps, hash);
+
+                val finished = new ArrayList<Path>();
+
+                for (val repository : repositories) {
+                    if (run.equals(Report.completed(output, repository.getFileName().toString()))) {
+                        finished.add(repository);
+                    }
+                }
+
+                repositories.removeAll(finished);
+
+                logger.info("batch of {} projects, {} of them already mined", total, total - repositories.size());
+
+                if (repositories.isEmpty()) {
+                    return;
+                }
+            }
+
             // check if a hash has been submitted, it will invalidate almost all of the settings and execute the
             // walker for a single commit hash.
             if (hash.length() > 0) {
                 assert (repositories.size() == 1);
             }
 
-            val pool = Executors.newFixedThreadPool(projectThreads);
-            val tasks = new Vector<Future<?>>();
+            // the store is shared by every project, since forks and vendored copies share the same blobs
+            // the lexer mode has a store of its own, its vectors don't hold the columns that need a parse
+            val store = blobStore ? BlobStore.open(output.resolve(mode == Mode.LEXER ? "blobs-lexer.store" : "blobs.store")) : null;
 
-            for (Path repositoryPath : repositories) {
-                val repositoryPathSplit = repositoryPath.toString().split("/");
-                val repositoryName = repositoryPathSplit[repositoryPathSplit.length - 1];
+            try {
+                // a single parser is shared by every project, so the prediction caches stay warm across them
+                val parser = new JSParser(parserCacheLimit, parseTimeout, maxTokens);
 
-                logger.info("project: {}", repositoryName);
+                // with a single work-stealing pool the projects and every file of them are tasks of the same workers, so
+                // idle workers help the projects still running instead of waiting for the largest one to finish. A lane
+                // waiting for the report of its project lets the pool start a spare worker meanwhile
+                val scheduler = threads > 0
+                        ? new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false, 0, threads * Math.max(1, parallelGroups), 1, saturated -> true, 60, TimeUnit.SECONDS)
+                        : null;
 
-                val walker = RepositoryWalker.builder()
-                        .path(repositoryPath)
-                        .project(repositoryName)
-                        .build();
+                val pool = scheduler != null ? scheduler : Executors.newFixedThreadPool(projectThreads);
+                val tasks = new Vector<Future<?>>();
+                val running = new AtomicInteger();
 
+                // progress of the whole batch, readable with any JMX client while it runs
+                val monitor = new Monitor(parser);
 
-                val interval = Interval.builder()
-                        .begin(initialDate)
-                        .end(endDate)
-                        .build();
+                try {
+                    monitor.projects(pool, repositories.size());
+                    monitor.register();
 
-                val task = RepositoryWalkerTask.builder()
-                        .walker(walker)
-                        .output(output)
-                        .interval(interval)
-                        .steps(steps)
-                        .hash(hash)
-                        .threads(filesThreads)
-                        .build();
+                    for (Path repositoryPath : repositories) {
+                        val repositoryPathSplit = repositoryPath.toString().split("/");
+                        val repositoryName = repositoryPathSplit[repositoryPathSplit.length - 1];
 
-                tasks.add(pool.submit(task));
-            }
+                        logger.info("project: {}", repositoryName);
 
-            // wait for every task to finish
-            for (Future<?> task : tasks) {
-                task.get();
-            }
+                        val walker = RepositoryWalker.builder()
+                                .path(repositoryPath)
+                                .project(repositoryName)
+                                .checkoutFree(checkoutFree || incremental || parallelGroups > 1)
+                                .incremental(incremental)
+                                .parallelGroups(parallelGroups)
+                                .maxFileSize(maxFileSize)
+                                .store(store)
+                                .parser(parser)
+                                .executor(scheduler)
+                                .monitor(monitor)
+                                .mode(mode)
+                                .generated(generated)
+                                .indexes(output)
+                                .build();
+
+                        val task = RepositoryWalkerTask.builder()
+                                .walker(walker)
+                                .output(output)
+                                .format(format)
+                                .interval(interval)
+                                .steps(steps)
+                                .hash(hash)
+                                .threads(filesThreads)
+                                .clearParserCache(parserCachePerProject)
+                                .running(running)
+                                .build();
+
+                        tasks.add(pool.submit(task));
+                    }
 
-            pool.shutdown();
+                    // wait for every task to finish
+                    for (Future<?> task : tasks) {
+                        task.get();
+                    }
+                } finally {
+                    // the projects still queued when one of them failed are dropped
+                    tasks.forEach(task -> task.cancel(false));
+
+                    pool.shutdown();
+                    monitor.unregister();
+                }
+            } finally {
+                if (store != null) {
+                    store.close();
+                }
+            }
         } catch (IOException ex) {
             ex.printStackTrace();
         } catch (java.lang.InterruptedException | java.util.concurrent.ExecutionException ex) {
@@ -146,4 +272,84 @@ public final class Walker {
             ex.printStackTrace();
         }
     }
+
+    /**
+     * Reads the project names of a manifest: a csv file with a repository_name column (such as scripts/projects.csv)
+     * or simply one name per line. A csv header without that column is an error, and the rows too short to have it
+     * are skipped.
+     */
+    static List<String> manifest(Path file) throws IOException {
+        val lines = Files.readAllLines(file);
+        val names = new LinkedHashSet<String>();
+
+        if (lines.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        val header = fields(lines.get(0));
+
+        // a single field per line is a plain list of names
+        val column = header.size() > 1 ? header.indexOf("repository_name") : 0;
+
+        if (column < 0) {
+            throw new IOException("manifest " + file + " has no repository_name column");
+        }
+
+        for (int i = header.size() > 1 ? 1 : 0; i < lines.size(); i++) {
+            if (lines.get(i).isBlank()) {
+                continue;
+            }
+
+            val columns = fields(lines.get(i));
+
+            if (columns.size() <= column) {
+                logger.warn("line {} of the manifest {} has no repository_name, skipping it", i + 1, file);
+                continue;
+            }
+
+            val name = columns.get(column).trim();
+
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Splits a csv line in its fields, a quoted field may hold commas and doubled quotes.
+     */
+    static List<String> fields(String line) {
+        val fields = new ArrayList<String>();
+        val field = new StringBuilder();
+
+        var quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            val c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(field.toString());
+
+        return fields;
+    }
 }
@@ -0,0 +1,137 @@
+package br.unb.cic.js.walker;
+
+import br.unb.cic.js.walker.rules.DirectoriesRule;
+import lombok.val;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the javascript files of a checkout depth first, reading a directory only when the iteration gets to
+ * it, so files are handed out while the tree is still being walked. The excluded directories (see
+ * {@link DirectoriesRule}) and {@code .git} are never opened. Symbolic links are followed, unless they point back to
+ * a directory that is being walked.
+ */
+final class WorkingTreeFiles implements Iterator<Path>, Closeable {
+
+    // The directories being walked, from the current one up to the root
+    private final Deque<Directory> directories = new ArrayDeque<>();
+
+    private Path next;
+
+    WorkingTreeFiles(Path root) throws IOException {
+        open(root, Files.readAttributes(root, BasicFileAttributes.class));
+        advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Path next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+
+        val current = next;
+
+        advance();
+
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        while (!directories.isEmpty()) {
+            directories.pop().stream.close();
+        }
+    }
+
+    private void advance() {
+        next = null;
+
+        try {
+            while (!directories.isEmpty()) {
+                val directory = directories.peek();
+
+                if (!directory.entries.hasNext()) {
+                    directories.pop().stream.close();
+                    continue;
+                }
+
+                val entry = directory.entries.next();
+                val name = entry.getFileName().toString();
+
+                BasicFileAttributes attributes;
+
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (IOException ex) {
+                    // a broken symbolic link
+                    continue;
+                }
+
+                if (attributes.isDirectory()) {
+                    if (!name.equals(".git") && !DirectoriesRule.excluded(name) && !loop(entry, attributes)) {
+                        open(entry, attributes);
+                    }
+                } else if (attributes.isRegularFile() && name.endsWith(".js")) {
+                    next = entry;
+                    return;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (DirectoryIteratorException ex) {
+            throw new UncheckedIOException(ex.getCause());
+        }
+    }
+
+    private void open(Path path, BasicFileAttributes attributes) throws IOException {
+        val stream = Files.newDirectoryStream(path);
+
+        directories.push(new Directory(path, attributes.fileKey(), stream));
+    }
+
+    /**
+     * Returns if a directory is one of the directories being walked, reached again through a symbolic link.
+     */
+    private boolean loop(Path path, BasicFileAttributes attributes) throws IOException {
+        val key = attributes.fileKey();
+
+        for (val directory : directories) {
+            if (key != null && directory.key != null ? key.equals(directory.key) : Files.isSameFile(path, directory.path)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static final class Directory {
+        final Path path;
+        final Object key;
+
+        final DirectoryStream<Path> stream;
+        final Iterator<Path> entries;
+
+        Directory(Path path, Object key, DirectoryStream<Path> stream) {
+            this.path = path;
+            this.key = key;
+            this.stream = stream;
+            this.entries = stream.iterator();
+        }
+    }
+}
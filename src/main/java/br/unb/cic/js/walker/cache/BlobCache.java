@@ -0,0 +1,173 @@
+package br.unb.cic.js.walker.cache;
+
+import br.unb.cic.js.miner.metrics.MetricVector;
+import lombok.val;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BlobCache keeps the metric vector of every file already parsed, keyed by its git blob id. Two files with the same
+ * content share the same blob id, so a file that didn't change between two revisions is never parsed again.
+ * <p>
+ * The cache may be backed by a {@link BlobStore}, in which case blobs parsed on previous executions (or on other
+ * repositories) are reused as well, and every new blob is persisted.
+ */
+public final class BlobCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobCache.class);
+
+    // Reason reported for failures that were recorded by a previous execution
+    private static final String STORED_FAILURE = "failed to parse on a previous execution (recorded in the blob store)";
+
+    private final Map<ObjectId, MetricVector> vectors = new ConcurrentHashMap<>();
+
+    // Blobs that failed to be parsed and the reason, so the error can be reported on every revision they appear
+    private final Map<ObjectId, String> failures = new ConcurrentHashMap<>();
+
+    // Generated blobs that weren't parsed, kept apart since the same content may have to be parsed on another path
+    private final Map<ObjectId, MetricVector> generated = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    private final BlobStore store;
+
+    /**
+     * @param store The persistent store backing this cache, it may be null
+     */
+    public BlobCache(BlobStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Returns the vector of a given blob, or null if it was never parsed.
+     */
+    public MetricVector get(AnyObjectId id) {
+        var vector = vectors.get(id);
+
+        if (vector == null && store != null) {
+            vector = load(id);
+        }
+
+        if (vector == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        return vector;
+    }
+
+    /**
+     * Returns why a given blob failed to be parsed, or null if it didn't fail.
+     */
+    public String failure(AnyObjectId id) {
+        return failures.get(id);
+    }
+
+    public void put(AnyObjectId id, MetricVector vector) {
+        vectors.put(id.copy(), vector);
+
+        if (store != null) {
+            try {
+                store.put(id, vector);
+            } catch (IOException ex) {
+                logger.error("failed to persist blob {}, reason {}", id.name(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Records a blob that failed with the vector it counts as, e.g. a failure marked as generated.
+     */
+    public void fail(AnyObjectId id, String reason, MetricVector vector) {
+        val key = id.copy();
+
+        failures.put(key, reason);
+        vectors.put(key, vector);
+
+        if (store != null) {
+            try {
+                store.fail(id, reason, vector);
+            } catch (IOException ex) {
+                logger.error("failed to persist blob {}, reason {}", id.name(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Records a blob that was given up on for running out of its parse budget. Unlike a failure it isn't persisted,
+     * since the outcome depends on the load of the machine and on the limits of the execution, and the next execution
+     * tries it again.
+     */
+    public void skip(AnyObjectId id, String reason) {
+        val key = id.copy();
+
+        failures.put(key, reason);
+        vectors.put(key, MetricVector.failure());
+    }
+
+    /**
+     * Records the vector of a generated blob that wasn't parsed. Like a skip it isn't persisted, since it depends on
+     * how the generated files are handled by each execution.
+     */
+    public void hold(AnyObjectId id, MetricVector vector) {
+        generated.put(id.copy(), vector);
+    }
+
+    /**
+     * Returns the vector of a generated blob that wasn't parsed, or null if it wasn't seen.
+     */
+    public MetricVector held(AnyObjectId id) {
+        return generated.get(id);
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return vectors.size();
+    }
+
+    public void clear() {
+        vectors.clear();
+        failures.clear();
+        generated.clear();
+    }
+
+    private MetricVector load(AnyObjectId id) {
+        try {
+            val vector = store.get(id);
+
+            if (vector != null) {
+                val key = id.copy();
+
+                if (store.failed(id)) {
+                    val reason = store.reason(id);
+
+                    failures.put(key, reason != null ? reason : STORED_FAILURE);
+                }
+
+                vectors.put(key, vector);
+            }
+
+            return vector;
+        } catch (IOException ex) {
+            logger.error("failed to read blob {} from the store, reason {}", id.name(), ex.getMessage());
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package br.unb.cic.js.walker.cache;
+
+import br.unb.cic.js.miner.metrics.MetricVector;
+import lombok.val;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BlobStore is an append-only file that maps git blob ids to their metric vectors, so the metrics of a file survive
+ * across executions of the miner and are shared by every repository (forks and vendored copies have the same blobs).
+ * <p>
+ * The file starts with a header (magic, version, number of columns and a hash of the column names) followed by fixed
+ * width records: the 20 bytes of the blob id, a status (0 parsed, 1 failed) and one int per column. A store whose
+ * header doesn't match the current layout is discarded, since its vectors would be misinterpreted.
+ * <p>
+ * The reason a blob failed is kept in a text file beside the store ({@code <store>.failures}), one line per failure
+ * with the blob id and the reason, so the errors of a resumed run read the same as the ones of a fresh run.
+ */
+public final class BlobStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+
+    private static final int MAGIC = 0x4a534d42; // JSMB
+
+    // Increase it whenever the visitor changes the way an existing column is counted
+    private static final int VERSION = 1;
+
+    private static final int HEADER = 16;
+    private static final int RECORD = Constants.OBJECT_ID_LENGTH + 4 + 4 * MetricVector.columns.length;
+
+    private static final int PARSED = 0;
+    private static final int FAILED = 1;
+
+    private final FileChannel channel;
+
+    // Reasons of the failures, appended as they are recorded
+    private final FileChannel failures;
+
+    // Records written before this execution, read straight from memory
+    private final MappedByteBuffer mapped;
+    private final int mappedRecords;
+
+    // Record number of every blob in the file
+    private final Map<ObjectId, Integer> index = new ConcurrentHashMap<>();
+
+    // Reason of every failure that has one
+    private final Map<ObjectId, String> reasons = new ConcurrentHashMap<>();
+
+    private int records;
+
+    private BlobStore(FileChannel channel, FileChannel failures, MappedByteBuffer mapped, int mappedRecords, int records) {
+        this.channel = channel;
+        this.failures = failures;
+        this.mapped = mapped;
+        this.mappedRecords = mappedRecords;
+        this.records = records;
+    }
+
+    /**
+     * Opens (or creates) the store at a given path, loading the index of the blobs it already contains.
+     */
+    public static BlobStore open(Path path) throws IOException {
+        val channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        val reasons = path.resolveSibling(path.getFileName() + ".failures");
+
+        var size = channel.size();
+
+        if (size >= HEADER && !compatible(channel)) {
+            logger.warn("blob store {} was written with a different metrics layout, discarding it", path);
+            size = 0;
+        }
+
+        if (size < HEADER) {
+            channel.truncate(0);
+            channel.write(header(), 0);
+            size = HEADER;
+
+            Files.deleteIfExists(reasons);
+        }
+
+        // a crash may leave a partially written record at the end of the file
+        val records = (int) ((size - HEADER) / RECORD);
+        channel.truncate(HEADER + (long) records * RECORD);
+
+        // a mapped region can't be larger than 2GB, the remaining records are read through the channel
+        val mappedRecords = Math.min(records, (Integer.MAX_VALUE - HEADER) / RECORD);
+        val mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER + (long) mappedRecords * RECORD);
+        val store = new BlobStore(channel, failures(reasons), mapped, mappedRecords, records);
+
+        val raw = new int[Constants.OBJECT_ID_LENGTH / 4];
+
+        for (int r = 0; r < records; r++) {
+            if (r < mappedRecords) {
+                val offset = HEADER + r * RECORD;
+
+                for (int i = 0; i < raw.length; i++) {
+                    raw[i] = mapped.getInt(offset + i * 4);
+                }
+            } else {
+                val buffer = store.fetch(r);
+
+                for (int i = 0; i < raw.length; i++) {
+                    raw[i] = buffer.getInt(i * 4);
+                }
+            }
+
+            store.index.put(ObjectId.fromRaw(raw), r);
+        }
+
+        store.reasons(reasons);
+
+        logger.info("blob store {} opened with {} blobs", path, records);
+
+        return store;
+    }
+
+    /**
+     * Returns the vector of a given blob, or null if the store doesn't have it.
+     */
+    public MetricVector get(AnyObjectId id) throws IOException {
+        val record = index.get(id);
+
+        if (record == null) {
+            return null;
+        }
+
+        return new MetricVector(read(record));
+    }
+
+    /**
+     * Returns if a given blob was recorded as a parse failure.
+     */
+    public boolean failed(AnyObjectId id) throws IOException {
+        val record = index.get(id);
+
+        return record != null && status(record) == FAILED;
+    }
+
+    public void put(AnyObjectId id, MetricVector vector) throws IOException {
+        append(id, vector, PARSED);
+    }
+
+    /**
+     * Returns why a given blob failed, or null if it didn't fail or the reason wasn't recorded.
+     */
+    public String reason(AnyObjectId id) {
+        return reasons.get(id);
+    }
+
+    public void fail(AnyObjectId id, String reason) throws IOException {
+        fail(id, reason, MetricVector.failure());
+    }
+
+    public void fail(AnyObjectId id, String reason, MetricVector vector) throws IOException {
+        append(id, vector, FAILED, reason);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try (channel; failures) {
+            channel.force(false);
+            failures.force(false);
+        }
+    }
+
+    private synchronized void append(AnyObjectId id, MetricVector vector, int status) throws IOException {
+        append(id, vector, status, null);
+    }
+
+    private synchronized void append(AnyObjectId id, MetricVector vector, int status, String reason) throws IOException {
+        if (index.containsKey(id)) {
+            return;
+        }
+
+        // the reason goes first, a record without one falls back to a generic reason
+        if (reason != null) {
+            val line = reason.replace('\n', ' ').replace('\r', ' ');
+
+            failures.write(ByteBuffer.wrap((id.name() + " " + line + "\n").getBytes(StandardCharsets.UTF_8)));
+            reasons.put(id.copy(), line);
+        }
+
+        val buffer = ByteBuffer.allocate(RECORD);
+        val raw = new byte[Constants.OBJECT_ID_LENGTH];
+
+        id.copyRawTo(raw, 0);
+        buffer.put(raw).putInt(status);
+
+        for (val value : vector.values()) {
+            buffer.putInt(value);
+        }
+
+        buffer.flip();
+
+        val position = HEADER + (long) records * RECORD;
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+
+        index.put(id.copy(), records++);
+    }
+
+    private int status(int record) throws IOException {
+        if (record < mappedRecords) {
+            return mapped.getInt(HEADER + record * RECORD + Constants.OBJECT_ID_LENGTH);
+        }
+
+        return fetch(record).getInt(Constants.OBJECT_ID_LENGTH);
+    }
+
+    private int[] read(int record) throws IOException {
+        val values = new int[MetricVector.columns.length];
+        val offset = Constants.OBJECT_ID_LENGTH + 4;
+
+        if (record < mappedRecords) {
+            val base = HEADER + record * RECORD + offset;
+
+            for (int i = 0; i < values.length; i++) {
+                values[i] = mapped.getInt(base + i * 4);
+            }
+        } else {
+            val buffer = fetch(record);
+
+            for (int i = 0; i < values.length; i++) {
+                values[i] = buffer.getInt(offset + i * 4);
+            }
+        }
+
+        return values;
+    }
+
+    // Reads a record appended during this execution, which isn't part of the mapped region
+    private ByteBuffer fetch(int record) throws IOException {
+        val buffer = ByteBuffer.allocate(RECORD);
+        val position = HEADER + (long) record * RECORD;
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of blob store at record " + record);
+            }
+        }
+
+        return buffer;
+    }
+
+    private static FileChannel failures(Path path) throws IOException {
+        val channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        channel.position(channel.size());
+
+        return channel;
+    }
+
+    // Loads the reasons of the failures, dropping a partially written last line
+    private void reasons(Path path) throws IOException {
+        val content = Files.readAllBytes(path);
+
+        var end = content.length;
+
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+
+        if (end < content.length) {
+            failures.truncate(end);
+            failures.position(end);
+        }
+
+        for (val line : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            if (line.length() > Constants.OBJECT_ID_STRING_LENGTH && ObjectId.isId(line.substring(0, Constants.OBJECT_ID_STRING_LENGTH))) {
+                reasons.put(ObjectId.fromString(line.substring(0, Constants.OBJECT_ID_STRING_LENGTH)), line.substring(Constants.OBJECT_ID_STRING_LENGTH + 1));
+            }
+        }
+    }
+
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(MetricVector.columns.length)
+                .putInt(String.join(",", MetricVector.columns).hashCode())
+                .flip();
+    }
+
+    private static boolean compatible(FileChannel channel) throws IOException {
+        val buffer = ByteBuffer.allocate(HEADER);
+
+        channel.read(buffer, 0);
+
+        return buffer.flip().equals(header());
+    }
+}
@@ -0,0 +1,8 @@
+package br.unb.cic.js.walker.exception;
+
+public class RevisionNotFoundException extends RuntimeException {
+
+    public RevisionNotFoundException(String revision) {
+        super("the revision " + revision + " was not found in the history of the main branch");
+    }
+}
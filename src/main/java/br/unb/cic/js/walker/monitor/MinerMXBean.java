@@ -0,0 +1,43 @@
+package br.unb.cic.js.walker.monitor;
+
+import java.util.List;
+
+/**
+ * Live view of a mining job, registered on the platform MBean server as {@code br.unb.cic.js:type=Miner} so it can be
+ * read with jconsole, VisualVM or any JMX client while the job runs.
+ */
+public interface MinerMXBean {
+
+    // Seconds since the job started
+    long getUptime();
+
+    int getProjectsTotal();
+
+    int getProjectsDone();
+
+    // Files of every collected commit group, including the ones whose metrics were cached
+    long getFilesAnalyzed();
+
+    double getFilesPerSecond();
+
+    // Files that were actually parsed (cache misses) and how many of them failed
+    long getFilesParsed();
+
+    long getFilesFailed();
+
+    double getErrorRate();
+
+    // Tasks waiting to be run by the project pool and by the file pools
+    int getProjectQueueDepth();
+
+    int getFileQueueDepth();
+
+    long getHeapUsed();
+
+    long getHeapMax();
+
+    long getParserCacheSize();
+
+    // The projects being traversed right now
+    List<ProjectStatus> getProjects();
+}
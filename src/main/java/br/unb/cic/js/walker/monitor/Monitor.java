@@ -0,0 +1,270 @@
+package br.unb.cic.js.walker.monitor;
+
+import br.unb.cic.js.miner.JSParser;
+import lombok.val;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monitor collects the progress of a mining job and exposes it through JMX. Counting is a few atomic increments per
+ * file, so a monitor that isn't registered costs next to nothing.
+ */
+public final class Monitor implements MinerMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(Monitor.class);
+
+    private static final String NAME = "br.unb.cic.js:type=Miner";
+
+    private final long started = System.nanoTime();
+
+    private final JSParser parser;
+
+    private volatile ExecutorService projectPool;
+    // The pools analyzing files and how many projects use each one, a shared pool is registered by every project
+    private final Map<ExecutorService, Integer> filePools = new ConcurrentHashMap<>();
+
+    // Projects being traversed, by instance since repositories in different directories may have the same name
+    private final Set<Project> projects = ConcurrentHashMap.newKeySet();
+
+    private volatile int projectsTotal;
+    private final AtomicInteger projectsDone = new AtomicInteger();
+
+    private final AtomicLong analyzed = new AtomicLong();
+    private final AtomicLong parsed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public Monitor() {
+        this(null);
+    }
+
+    public Monitor(JSParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Registers the monitor on the platform MBean server, returning false if it couldn't be registered.
+     */
+    public boolean register() {
+        try {
+            val server = ManagementFactory.getPlatformMBeanServer();
+            val name = new ObjectName(NAME);
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+
+            server.registerMBean(this, name);
+
+            logger.info("progress of the job available through JMX as {}", NAME);
+
+            return true;
+        } catch (Exception ex) {
+            logger.warn("failed to register the JMX monitor, reason {}", ex.getMessage());
+
+            return false;
+        }
+    }
+
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(NAME));
+        } catch (Exception ex) {
+            logger.debug("failed to unregister the JMX monitor, reason {}", ex.getMessage());
+        }
+    }
+
+    public void projects(ExecutorService pool, int total) {
+        this.projectPool = pool;
+        this.projectsTotal = total;
+    }
+
+    public void register(ExecutorService pool) {
+        filePools.merge(pool, 1, Integer::sum);
+    }
+
+    /**
+     * Stops reporting the queue of a pool once the last project using it unregisters it.
+     */
+    public void unregister(ExecutorService pool) {
+        filePools.computeIfPresent(pool, (p, projects) -> projects > 1 ? projects - 1 : null);
+    }
+
+    /**
+     * Starts tracking a project, its progress is reported until {@link #finish(Project)} is called.
+     */
+    public Project start(String name) {
+        val project = new Project(name);
+
+        projects.add(project);
+
+        return project;
+    }
+
+    public void finish(Project project) {
+        projects.remove(project);
+        projectsDone.incrementAndGet();
+    }
+
+    /**
+     * Progress of a single project, updated by the threads traversing it.
+     */
+    public final class Project {
+        private final String name;
+
+        private volatile int groupsTotal;
+        private final AtomicInteger groupsDone = new AtomicInteger();
+        private final AtomicLong files = new AtomicLong();
+
+        private volatile long progress = System.nanoTime();
+
+        private Project(String name) {
+            this.name = name;
+        }
+
+        public void groups(int total) {
+            groupsTotal = total;
+            progress = System.nanoTime();
+        }
+
+        public void group() {
+            groupsDone.incrementAndGet();
+            progress = System.nanoTime();
+        }
+
+        /**
+         * A file of a commit group was analyzed, from the cache or not.
+         */
+        public void analyzed() {
+            files.incrementAndGet();
+            analyzed.incrementAndGet();
+            progress = System.nanoTime();
+        }
+
+        /**
+         * A file was parsed, successfully or not.
+         */
+        public void parsed(boolean failure) {
+            parsed.incrementAndGet();
+
+            if (failure) {
+                failed.incrementAndGet();
+            }
+        }
+
+        private ProjectStatus status(long now) {
+            return new ProjectStatus(name, groupsDone.get(), groupsTotal, files.get(), TimeUnit.NANOSECONDS.toSeconds(now - progress));
+        }
+    }
+
+    @Override
+    public long getUptime() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started);
+    }
+
+    @Override
+    public int getProjectsTotal() {
+        return projectsTotal;
+    }
+
+    @Override
+    public int getProjectsDone() {
+        return projectsDone.get();
+    }
+
+    @Override
+    public long getFilesAnalyzed() {
+        return analyzed.get();
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        val seconds = (System.nanoTime() - started) / 1e9;
+
+        return seconds > 0 ? analyzed.get() / seconds : 0;
+    }
+
+    @Override
+    public long getFilesParsed() {
+        return parsed.get();
+    }
+
+    @Override
+    public long getFilesFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public double getErrorRate() {
+        val total = parsed.get();
+
+        return total > 0 ? (double) failed.get() / total : 0;
+    }
+
+    @Override
+    public int getProjectQueueDepth() {
+        val pool = projectPool;
+
+        if (pool instanceof ForkJoinPool) {
+            return ((ForkJoinPool) pool).getQueuedSubmissionCount();
+        }
+
+        return depth(pool);
+    }
+
+    @Override
+    public int getFileQueueDepth() {
+        var depth = 0L;
+
+        for (val pool : filePools.keySet()) {
+            // the files submitted to a fork join pool wait on the queues of its workers
+            depth += pool instanceof ForkJoinPool ? ((ForkJoinPool) pool).getQueuedTaskCount() : depth(pool);
+        }
+
+        return (int) Math.min(depth, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getHeapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Override
+    public long getHeapMax() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+    }
+
+    @Override
+    public long getParserCacheSize() {
+        return parser != null ? parser.cacheSize() : 0;
+    }
+
+    @Override
+    public List<ProjectStatus> getProjects() {
+        val now = System.nanoTime();
+        val status = new ArrayList<ProjectStatus>();
+
+        for (val project : projects) {
+            status.add(project.status(now));
+        }
+
+        return status;
+    }
+
+    private static int depth(ExecutorService pool) {
+        return pool instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) pool).getQueue().size() : 0;
+    }
+}
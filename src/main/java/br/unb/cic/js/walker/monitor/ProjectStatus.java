@@ -0,0 +1,30 @@
+package br.unb.cic.js.walker.monitor;
+
+import lombok.Getter;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Progress of a project being traversed, as reported by {@link MinerMXBean}.
+ */
+@Getter
+public final class ProjectStatus {
+    private final String name;
+
+    private final int groupsDone;
+    private final int groupsTotal;
+
+    private final long filesAnalyzed;
+
+    // A project that doesn't make progress for long is probably stuck on a file
+    private final long secondsSinceProgress;
+
+    @ConstructorProperties({"name", "groupsDone", "groupsTotal", "filesAnalyzed", "secondsSinceProgress"})
+    public ProjectStatus(String name, int groupsDone, int groupsTotal, long filesAnalyzed, long secondsSinceProgress) {
+        this.name = name;
+        this.groupsDone = groupsDone;
+        this.groupsTotal = groupsTotal;
+        this.filesAnalyzed = filesAnalyzed;
+        this.secondsSinceProgress = secondsSinceProgress;
+    }
+}
@@ -0,0 +1,617 @@
+package br.unb.cic.js.walker.report;
+
+import br.unb.cic.js.miner.Mode;
+import br.unb.cic.js.miner.metrics.MetricVector;
+import br.unb.cic.js.miner.metrics.Summary;
+import lombok.val;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * ColumnarReport writes the summaries of a project to {@code <project>.jsmc}, a binary file with one typed column per
+ * field, so the metrics can be loaded without formatting and parsing text.
+ * <p>
+ * Everything is little endian. The file starts with a header (magic, version, number of metric columns and the name of
+ * each one) followed by row groups. A row group is its payload length, the payload and the crc32 of the payload, which
+ * holds the number of rows and then the columns one after the other:
+ * <ul>
+ *     <li>project: a dictionary (number of entries, each one a short length and utf-8 bytes) and one int index per row</li>
+ *     <li>date: one long per row, milliseconds since the epoch</li>
+ *     <li>revision: a dictionary of 20 byte commit ids and one int index per row</li>
+ *     <li>one int per row for every metric, in the order of the header</li>
+ * </ul>
+ * The header only lists the metrics computed by the mode of the run, the lexer mode leaves out the ones that need a
+ * parse.
+ * The rows of the commit groups are buffered and written as a row group every {@value #GROUP_ROWS} rows, and when the
+ * report is completed or closed. Until then each row is appended to {@code <project>.jsmc.journal} (its index in the
+ * report, date, revision, metrics and crc32) and synced together with its errors, like the lines of {@link CsvReport}.
+ * The journal is emptied once its rows are in a row group. When a report is reopened a torn group at its end is
+ * dropped, and the rows of the journal after the last group are buffered again, so resuming a run only recomputes the
+ * commit group that never reached the disk. Groups that failed to be collected have no metrics and only show up in the
+ * errors file.
+ */
+public final class ColumnarReport implements Report {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarReport.class);
+
+    private static final int MAGIC = 0x434d534a; // JSMC
+    private static final int VERSION = 1;
+
+    // Rows buffered before they are written as a row group
+    static final int GROUP_ROWS = 64;
+
+    private final String project;
+
+    private final ErrorsFile errors;
+    private final FileChannel channel;
+
+    // The rows not written as a group yet, see Row
+    private final Path journalFile;
+    private final FileChannel journal;
+
+    // Indexes of the metric columns written, in the order of the header
+    private final int[] columns;
+
+    // Rows already written as groups, and the ones buffered after them
+    private int rows;
+    private final List<Row> pending = new ArrayList<>();
+
+    private Date last;
+
+    private ColumnarReport(String project, ErrorsFile errors, FileChannel channel, Path journalFile, FileChannel journal, int[] columns) {
+        this.project = project;
+        this.errors = errors;
+        this.channel = channel;
+        this.journalFile = journalFile;
+        this.journal = journal;
+        this.columns = columns;
+    }
+
+    /**
+     * Opens the report of a project in the output directory. When resuming, the groups of an existing report are kept
+     * (dropping a partially written last one), otherwise the report and the errors file start empty.
+     */
+    public static ColumnarReport open(Path output, String project, boolean resume) throws IOException {
+        return open(output, project, resume, Mode.PARSER);
+    }
+
+    /**
+     * Opens the report of a project with the metric columns computed by a mode.
+     */
+    public static ColumnarReport open(Path output, String project, boolean resume, Mode mode) throws IOException {
+        val file = output.resolve(project + ".jsmc");
+        val channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        val journalFile = output.resolve(project + ".jsmc.journal");
+        val journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        val columns = columns(mode);
+        val header = header(columns);
+
+        Table table = null;
+
+        if (resume && channel.size() > 0) {
+            table = read(channel, header.duplicate());
+
+            if (table == null) {
+                logger.warn("{} -- report was written with a different header, starting it over", project);
+                resume = false;
+            } else {
+                channel.truncate(table.end);
+            }
+        }
+
+        if (!resume || channel.size() == 0) {
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.force(false);
+
+            journal.truncate(0);
+        }
+
+        channel.position(channel.size());
+
+        val report = new ColumnarReport(project, ErrorsFile.open(output, project, resume), channel, journalFile, journal, columns);
+
+        if (table != null) {
+            report.rows = table.rows;
+
+            if (table.rows > 0) {
+                report.last = new Date(table.date[table.rows - 1]);
+            }
+        }
+
+        report.recover();
+
+        return report;
+    }
+
+    @Override
+    public Date last() {
+        return last;
+    }
+
+    /**
+     * Appends the errors and the row of a commit group, syncing both before returning. The row is only written to the
+     * report once a whole group of rows is buffered.
+     */
+    @Override
+    public synchronized void write(Summary summary) {
+        try {
+            errors.write(summary.errors);
+            errors.sync();
+
+            if (summary.totals == null) {
+                return;
+            }
+
+            val values = summary.totals.values();
+            val row = new Row(summary.date.getTime(), ObjectId.fromString(summary.revision), Arrays.stream(columns).map(column -> values[column]).toArray());
+
+            append(row);
+
+            pending.add(row);
+            last = summary.date;
+
+            if (pending.size() == GROUP_ROWS) {
+                flush();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public synchronized void complete(String run) throws IOException {
+        flush();
+
+        errors.complete(run);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try (errors; channel; journal) {
+            flush();
+        }
+
+        // every row is in a group now
+        Files.deleteIfExists(journalFile);
+    }
+
+    /**
+     * A row buffered before it is written as part of a group, only with the metric columns of the report. In the
+     * journal it is its index among the rows of the report, date, revision, metrics and the crc32 of all of them.
+     */
+    private static final class Row {
+        private final long date;
+        private final ObjectId revision;
+        private final int[] values;
+
+        private Row(long date, ObjectId revision, int[] values) {
+            this.date = date;
+            this.revision = revision;
+            this.values = values;
+        }
+    }
+
+    private int record() {
+        return 4 + 8 + Constants.OBJECT_ID_LENGTH + 4 * columns.length + 4;
+    }
+
+    private void append(Row row) throws IOException {
+        val buffer = ByteBuffer.allocate(record()).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(rows + pending.size());
+        buffer.putLong(row.date);
+        buffer.put(raw(row.revision));
+
+        for (val value : row.values) {
+            buffer.putInt(value);
+        }
+
+        val crc = new CRC32();
+
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        buffer.flip();
+
+        val position = journal.size();
+
+        while (buffer.hasRemaining()) {
+            journal.write(buffer, position + buffer.position());
+        }
+
+        journal.force(false);
+    }
+
+    private static byte[] raw(ObjectId id) {
+        val raw = new byte[Constants.OBJECT_ID_LENGTH];
+
+        id.copyRawTo(raw, 0);
+
+        return raw;
+    }
+
+    /**
+     * Buffers again the rows of the journal that follow the groups of the report, the ones already in a group (left by
+     * a crash right after it was written) and a torn last one are dropped.
+     */
+    private void recover() throws IOException {
+        val record = record();
+        val buffer = ByteBuffer.allocate((int) journal.size()).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (journal.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        buffer.flip();
+
+        val crc = new CRC32();
+
+        while (buffer.remaining() >= record) {
+            val start = buffer.position();
+
+            crc.reset();
+            crc.update(buffer.slice().limit(record - 4));
+
+            if ((int) crc.getValue() != buffer.getInt(start + record - 4)) {
+                break;
+            }
+
+            val index = buffer.getInt();
+            val date = buffer.getLong();
+            val raw = new byte[Constants.OBJECT_ID_LENGTH];
+
+            buffer.get(raw);
+
+            val values = new int[columns.length];
+
+            for (int i = 0; i < values.length; i++) {
+                values[i] = buffer.getInt();
+            }
+
+            buffer.position(start + record);
+
+            if (index < rows + pending.size()) {
+                continue;
+            }
+
+            if (index > rows + pending.size()) {
+                break;
+            }
+
+            pending.add(new Row(date, ObjectId.fromRaw(raw), values));
+            last = new Date(date);
+        }
+
+        // the journal only keeps the rows buffered again
+        journal.truncate(0);
+
+        val buffered = new ArrayList<>(pending);
+
+        pending.clear();
+
+        for (val row : buffered) {
+            append(row);
+            pending.add(row);
+        }
+
+        journal.force(false);
+    }
+
+    /**
+     * Writes the buffered rows as a group and empties the journal. The projects and the revisions are written once
+     * per group in dictionaries, each row has the index of its own.
+     */
+    private void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        val name = project.getBytes(StandardCharsets.UTF_8);
+        val revisions = new LinkedHashMap<ObjectId, Integer>();
+
+        for (val row : pending) {
+            revisions.putIfAbsent(row.revision, revisions.size());
+        }
+
+        val count = pending.size();
+        val size = 4 + 4 + 2 + name.length + 4 * count + 8 * count + 4 + Constants.OBJECT_ID_LENGTH * revisions.size() + 4 * count + 4 * columns.length * count;
+
+        val buffer = ByteBuffer.allocate(4 + size + 4).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(size);
+        buffer.putInt(count);
+
+        buffer.putInt(1);
+        buffer.putShort((short) name.length).put(name);
+
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(0);
+        }
+
+        for (val row : pending) {
+            buffer.putLong(row.date);
+        }
+
+        buffer.putInt(revisions.size());
+
+        for (val revision : revisions.keySet()) {
+            buffer.put(raw(revision));
+        }
+
+        for (val row : pending) {
+            buffer.putInt(revisions.get(row.revision));
+        }
+
+        for (int column = 0; column < columns.length; column++) {
+            for (val row : pending) {
+                buffer.putInt(row.values[column]);
+            }
+        }
+
+        val crc = new CRC32();
+
+        crc.update(buffer.array(), 4, size);
+        buffer.putInt((int) crc.getValue());
+
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        channel.force(false);
+
+        rows += count;
+        pending.clear();
+
+        journal.truncate(0);
+        journal.force(false);
+    }
+
+    private static int[] columns(Mode mode) {
+        return IntStream.range(0, MetricVector.columns.length).filter(mode::available).toArray();
+    }
+
+    private static ByteBuffer header(int[] columns) {
+        val names = new ArrayList<byte[]>();
+        var size = 12;
+
+        for (val column : columns) {
+            val bytes = MetricVector.columns[column].getBytes(StandardCharsets.UTF_8);
+
+            names.add(bytes);
+            size += 2 + bytes.length;
+        }
+
+        val buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(names.size());
+
+        for (val name : names) {
+            buffer.putShort((short) name.length).put(name);
+        }
+
+        return buffer.flip();
+    }
+
+    /**
+     * The rows of a columnar report, loaded column by column.
+     */
+    public static final class Table {
+        // Rows allocated before the first group is read, the arrays grow as needed
+        private static final int CAPACITY = 128;
+
+        public final String[] columns;
+
+        public int rows;
+
+        public String[] project = new String[CAPACITY];
+        public long[] date = new long[CAPACITY];
+        public String[] revision = new String[CAPACITY];
+
+        // One array of rows per metric column
+        public int[][] values;
+
+        // Position right after the last complete group
+        long end;
+
+        // Groups read and the entries of their revision dictionaries
+        int groups;
+        int revisions;
+
+        private Table(String[] columns) {
+            this.columns = columns;
+            this.values = new int[columns.length][CAPACITY];
+        }
+
+        /**
+         * Returns the values of a metric column by its name, or null if the report doesn't have it.
+         */
+        public int[] column(String name) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equals(name)) {
+                    return values[i];
+                }
+            }
+
+            return null;
+        }
+
+        private void grow(int capacity) {
+            if (capacity <= date.length) {
+                return;
+            }
+
+            val length = Math.max(capacity, date.length * 2);
+
+            project = Arrays.copyOf(project, length);
+            date = Arrays.copyOf(date, length);
+            revision = Arrays.copyOf(revision, length);
+
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Arrays.copyOf(values[i], length);
+            }
+        }
+
+        private void trim() {
+            project = Arrays.copyOf(project, rows);
+            date = Arrays.copyOf(date, rows);
+            revision = Arrays.copyOf(revision, rows);
+
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Arrays.copyOf(values[i], rows);
+            }
+        }
+    }
+
+    /**
+     * Loads every complete group of a columnar report.
+     */
+    public static Table read(Path file) throws IOException {
+        try (val channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            val table = read(channel, null);
+
+            if (table == null) {
+                throw new IOException("not a columnar report: " + file);
+            }
+
+            return table;
+        }
+    }
+
+    /**
+     * Reads the groups of a report up to the first incomplete one, returning null if it isn't a report or if its
+     * header isn't the expected one (when given).
+     */
+    private static Table read(FileChannel channel, ByteBuffer expected) throws IOException {
+        val buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        buffer.flip();
+
+        if (expected != null && (buffer.remaining() < expected.remaining() || !buffer.slice().limit(expected.remaining()).equals(expected))) {
+            return null;
+        }
+
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+
+        val names = new String[buffer.getInt()];
+
+        for (int i = 0; i < names.length; i++) {
+            val bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+
+            buffer.get(bytes);
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        val table = new Table(names);
+
+        table.end = buffer.position();
+
+        val crc = new CRC32();
+
+        while (buffer.remaining() >= 4) {
+            val size = buffer.getInt(buffer.position());
+
+            if (size < 0 || buffer.remaining() < 4 + size + 4) {
+                break;
+            }
+
+            val payload = buffer.slice().position(4).limit(4 + size).slice().order(ByteOrder.LITTLE_ENDIAN);
+
+            crc.reset();
+            crc.update(payload.duplicate());
+
+            if ((int) crc.getValue() != buffer.getInt(buffer.position() + 4 + size)) {
+                break;
+            }
+
+            group(payload, table);
+
+            buffer.position(buffer.position() + 4 + size + 4);
+            table.end = buffer.position();
+        }
+
+        table.trim();
+
+        return table;
+    }
+
+    private static void group(ByteBuffer payload, Table table) {
+        val rows = payload.getInt();
+        val offset = table.rows;
+
+        table.grow(offset + rows);
+
+        val projects = new String[payload.getInt()];
+
+        for (int i = 0; i < projects.length; i++) {
+            val bytes = new byte[Short.toUnsignedInt(payload.getShort())];
+
+            payload.get(bytes);
+            projects[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        for (int i = 0; i < rows; i++) {
+            table.project[offset + i] = projects[payload.getInt()];
+        }
+
+        for (int i = 0; i < rows; i++) {
+            table.date[offset + i] = payload.getLong();
+        }
+
+        val revisions = new String[payload.getInt()];
+        val raw = new byte[Constants.OBJECT_ID_LENGTH];
+
+        for (int i = 0; i < revisions.length; i++) {
+            payload.get(raw);
+            revisions[i] = ObjectId.fromRaw(raw).name();
+        }
+
+        for (int i = 0; i < rows; i++) {
+            table.revision[offset + i] = revisions[payload.getInt()];
+        }
+
+        table.groups++;
+        table.revisions += revisions.length;
+
+        for (val column : table.values) {
+            for (int i = 0; i < rows; i++) {
+                column[offset + i] = payload.getInt();
+            }
+        }
+
+        table.rows += rows;
+    }
+}
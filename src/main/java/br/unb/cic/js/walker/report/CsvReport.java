@@ -0,0 +1,178 @@
+package br.unb.cic.js.walker.report;
+
+import br.unb.cic.js.date.Formatter;
+import br.unb.cic.js.miner.metrics.Summary;
+import lombok.val;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.Date;
+
+/**
+ * CsvReport writes the csv report and the errors file of a project while it is traversed, one commit group at a time.
+ * <p>
+ * Every group is flushed and synced to disk as soon as it is collected, so a crash loses at most the group being
+ * collected. The errors of a group are written before its row: when a run is resumed from the last row of the report
+ * the errors of an interrupted group may appear twice, but never go missing.
+ */
+public final class CsvReport implements Report {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvReport.class);
+
+    private final ErrorsFile errors;
+
+    private final FileOutputStream stream;
+    private final BufferedWriter report;
+
+    // Date of the last group found in an existing report
+    private final Date last;
+
+    private CsvReport(ErrorsFile errors, FileOutputStream stream, Date last) {
+        this.errors = errors;
+        this.stream = stream;
+        this.report = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        this.last = last;
+    }
+
+    /**
+     * Opens the report of a project in the output directory. When resuming, the rows of an existing report are kept
+     * (dropping a partially written last line), otherwise the report and the errors file start empty.
+     */
+    public static CsvReport open(Path output, String project, boolean resume) throws IOException {
+        val file = output.resolve(project + ".csv");
+
+        Date last = null;
+
+        if (resume && Files.exists(file)) {
+            if (recover(file)) {
+                last = last(file);
+            } else {
+                logger.warn("{} -- report was written with a different header, starting it over", project);
+                resume = false;
+            }
+        }
+
+        if (!resume) {
+            Files.deleteIfExists(file);
+        }
+
+        val fresh = Files.notExists(file) || Files.size(file) == 0;
+
+        val csv = new CsvReport(ErrorsFile.open(output, project, resume), new FileOutputStream(file.toFile(), true), last);
+
+        if (fresh) {
+            csv.report.write(Summary.header());
+            csv.sync();
+        }
+
+        return csv;
+    }
+
+    @Override
+    public Date last() {
+        return last;
+    }
+
+    /**
+     * Appends the row and the errors of a commit group, syncing both files before returning.
+     */
+    @Override
+    public synchronized void write(Summary summary) {
+        try {
+            errors.write(summary.errors);
+
+            val values = summary.values();
+
+            if (!values.isEmpty()) {
+                report.append(values).append("\n");
+            }
+
+            sync();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void complete(String run) throws IOException {
+        errors.complete(run);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (errors; stream) {
+            report.flush();
+        }
+    }
+
+    private void sync() throws IOException {
+        errors.sync();
+
+        report.flush();
+        stream.getChannel().force(false);
+    }
+
+    /**
+     * Drops a partially written last line and checks the header, returning false if the report can't be resumed.
+     */
+    private static boolean recover(Path file) throws IOException {
+        try (val channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            val content = Files.readAllBytes(file);
+
+            var end = content.length;
+
+            while (end > 0 && content[end - 1] != '\n') {
+                end--;
+            }
+
+            if (end < content.length) {
+                channel.truncate(end);
+            }
+
+            if (end == 0) {
+                return true;
+            }
+
+            val header = Summary.header().getBytes(StandardCharsets.UTF_8);
+
+            if (end < header.length) {
+                return false;
+            }
+
+            for (int i = 0; i < header.length; i++) {
+                if (content[i] != header[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static Date last(Path file) throws IOException {
+        val lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+
+        if (lines.size() < 2) {
+            return null;
+        }
+
+        val columns = lines.get(lines.size() - 1).split(",");
+
+        try {
+            return Formatter.parse(columns[1]);
+        } catch (ParseException | ArrayIndexOutOfBoundsException ex) {
+            throw new IOException("malformed last row in report " + file, ex);
+        }
+    }
+}
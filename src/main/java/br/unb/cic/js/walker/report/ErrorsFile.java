@@ -0,0 +1,80 @@
+package br.unb.cic.js.walker.report;
+
+import lombok.val;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * ErrorsFile is the {@code <project>-errors.txt} file and the {@code <project>.done} marker shared by every report
+ * format. The marker holds the settings of the run that finished the project (see {@link Report#complete(String)}).
+ */
+final class ErrorsFile implements Closeable {
+
+    private static final String SEPARATOR = "\n-----------------------\n";
+
+    private final Path marker;
+
+    private final FileOutputStream stream;
+    private final BufferedWriter writer;
+
+    private ErrorsFile(Path marker, FileOutputStream stream) {
+        this.marker = marker;
+        this.stream = stream;
+        this.writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+    }
+
+    static ErrorsFile open(Path output, String project, boolean resume) throws IOException {
+        val file = output.resolve(project + "-errors.txt");
+        val marker = output.resolve(project + ".done");
+
+        Files.deleteIfExists(marker);
+
+        if (!resume) {
+            Files.deleteIfExists(file);
+        }
+
+        return new ErrorsFile(marker, new FileOutputStream(file.toFile(), true));
+    }
+
+    void write(Map<String, String> errors) throws IOException {
+        for (val error : errors.entrySet()) {
+            writer.append(error.getKey())
+                    .append("\n")
+                    .append(error.getValue())
+                    .append(SEPARATOR);
+        }
+    }
+
+    void sync() throws IOException {
+        writer.flush();
+        stream.getChannel().force(false);
+    }
+
+    void complete(String run) throws IOException {
+        Files.writeString(marker, run);
+    }
+
+    /**
+     * Returns the settings of the run that finished a project, or null if it isn't finished.
+     */
+    static String marker(Path output, String project) throws IOException {
+        val marker = output.resolve(project + ".done");
+
+        return Files.exists(marker) ? Files.readString(marker) : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (stream) {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package br.unb.cic.js.walker.report;
+
+import br.unb.cic.js.miner.metrics.Summary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * Report is the sink of the summaries of a project, written one commit group at a time while the project is traversed.
+ * Every report also keeps the errors file of the project and a {@code <project>.done} marker of a finished traversal.
+ */
+public interface Report extends Closeable {
+
+    /**
+     * Returns the date of the last group durably written by a previous run, or null if there is none.
+     */
+    Date last();
+
+    /**
+     * Appends the metrics and the errors of a commit group.
+     */
+    void write(Summary summary);
+
+    /**
+     * Marks the project as completely traversed, once every row is on disk.
+     *
+     * @param run The settings the rows were collected with (e.g. the interval and the steps), kept in the marker
+     */
+    void complete(String run) throws IOException;
+
+    /**
+     * Returns the settings of the run that completely traversed a project, or null if it wasn't finished.
+     */
+    static String completed(Path output, String project) throws IOException {
+        return ErrorsFile.marker(output, project);
+    }
+}
@@ -0,0 +1,28 @@
+package br.unb.cic.js.walker.report;
+
+import br.unb.cic.js.miner.Mode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The formats a project report can be written in.
+ */
+public enum ReportFormat {
+    // <project>.csv, one text row per commit group
+    CSV,
+    // <project>.jsmc, typed columns grouped in blocks of rows (see ColumnarReport)
+    COLUMNAR;
+
+    /**
+     * Opens the report of a project in the output directory, keeping the groups of a previous run when resuming.
+     */
+    public Report open(Path output, String project, boolean resume, Mode mode) throws IOException {
+        switch (this) {
+            case COLUMNAR:
+                return ColumnarReport.open(output, project, resume, mode);
+            default:
+                return CsvReport.open(output, project, resume);
+        }
+    }
+}
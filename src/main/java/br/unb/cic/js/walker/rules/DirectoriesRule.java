@@ -1,26 +1,51 @@
 package br.unb.cic.js.walker.rules;
 
 import lombok.NoArgsConstructor;
-import lombok.val;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
-import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.Set;
 
 @NoArgsConstructor
 public final class DirectoriesRule {
 
-    private static final String[] directories = {"lib", "vendor", "node_modules", "libs", "coverage", "build", "bin", "stories", "dist", "external", "3rdParty", "thirdparty", "third-party"};
+    private static final Set<String> directories = Set.of("lib", "vendor", "node_modules", "libs", "coverage", "build", "bin", "stories", "dist", "external", "3rdParty", "thirdparty", "third-party");
 
     /**
-     * This method filters out directories that match with a list of words defined within. The directories contain
-     * files that are not from the analyzed project but are 3rd party code.
-     *
-     * @param filepath The path of a given file
-     * @return If that filepath should be collected for analysis.
+     * Returns if a directory, given by its name, holds 3rd party code and should not be traversed.
      */
-    public static boolean walk(Path filepath) {
-        val file = filepath.toFile().toString();
+    public static boolean excluded(String directory) {
+        return directories.contains(directory);
+    }
+
+    /**
+     * Returns a filter for tree walks that doesn't enter the excluded directories at all.
+     */
+    public static TreeFilter filter() {
+        return Filter.INSTANCE;
+    }
+
+    private static final class Filter extends TreeFilter {
+        private static final Filter INSTANCE = new Filter();
+
+        @Override
+        public boolean include(TreeWalk walker) {
+            return !walker.isSubtree() || !excluded(walker.getNameString());
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            return false;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this;
+        }
 
-        return Arrays.stream(directories).noneMatch(file::contains);
+        @Override
+        public String toString() {
+            return "EXCLUDED_DIRECTORIES";
+        }
     }
 }
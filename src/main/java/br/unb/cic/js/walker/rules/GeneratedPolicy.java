@@ -0,0 +1,14 @@
+package br.unb.cic.js.walker.rules;
+
+/**
+ * What happens to the files classified as generated or minified by {@link GeneratedRule}. Whatever the policy, they
+ * are reported in the generated-files and generated-kib columns.
+ */
+public enum GeneratedPolicy {
+    // Not parsed and not counted as files of the project
+    SKIP,
+    // Not parsed, but counted as files of the project
+    COUNT,
+    // Parsed as any other file
+    PARSE,
+}
@@ -0,0 +1,216 @@
+package br.unb.cic.js.walker.rules;
+
+import lombok.val;
+import org.eclipse.jgit.attributes.Attribute;
+import org.eclipse.jgit.attributes.AttributesNode;
+import org.eclipse.jgit.attributes.AttributesRule;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * GeneratedRule tells the generated and minified files (bundles, compiled sources) apart from the ones written by the
+ * developers of a project, which are often the largest and slowest files to parse. It follows the heuristics of GitHub
+ * Linguist: the linguist-generated and linguist-vendored attributes of the root .gitattributes and the file name come
+ * first, then the raw content is checked without being decoded.
+ */
+public final class GeneratedRule {
+
+    // A rule for repositories without a .gitattributes
+    public static final GeneratedRule NONE = new GeneratedRule(List.of());
+
+    // Files with lines longer than this many bytes in average are minified
+    private static final int AVERAGE_LINE = 110;
+
+    // The line statistics only apply from this size on, a short file is cheap to parse anyway
+    private static final int MIN_SIZE = 1024;
+
+    // How much of the beginning of a file is searched for a generated header, and of its end for a source map
+    private static final int HEAD = 1024;
+    private static final int TAIL = 512;
+
+    private static final String[] headers = {"@generated", "DO NOT EDIT", "Generated by ", "Code generated", "auto-generated", "webpackBootstrap"};
+
+    private static final String SOURCE_MAP = "sourceMappingURL=";
+
+    private final List<AttributesRule> rules;
+
+    private GeneratedRule(List<AttributesRule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Builds the rule of a repository from the content of its root .gitattributes.
+     */
+    public static GeneratedRule of(byte[] attributes) throws IOException {
+        val node = new AttributesNode();
+
+        node.parse(new ByteArrayInputStream(attributes));
+
+        return new GeneratedRule(node.getRules());
+    }
+
+    /**
+     * Classifies a file by its path alone.
+     *
+     * @param file The path of the file, relative to the root of the repository
+     * @return True if the file is generated, false if the attributes say it isn't (whatever its content), or null if
+     * its content has to be checked.
+     */
+    public Boolean path(String file) {
+        val generated = attribute(file, "linguist-generated");
+        val vendored = attribute(file, "linguist-vendored");
+
+        if (Boolean.TRUE.equals(generated) || Boolean.TRUE.equals(vendored)) {
+            return true;
+        }
+
+        if (Boolean.FALSE.equals(generated)) {
+            return false;
+        }
+
+        return file.endsWith(".min.js") || file.endsWith("-min.js") ? true : null;
+    }
+
+    /**
+     * Classifies a file by its content: a generated header, a source map reference at its end or long lines in
+     * average. The position of the buffer isn't changed.
+     */
+    public static boolean content(ByteBuffer content) {
+        val begin = content.position();
+        val size = content.remaining();
+
+        val head = ascii(content, begin, Math.min(size, HEAD));
+        val tail = ascii(content, begin + Math.max(size - TAIL, 0), Math.min(size, TAIL));
+
+        if (marked(head, tail)) {
+            return true;
+        }
+
+        if (size < MIN_SIZE) {
+            return false;
+        }
+
+        var lines = 0;
+
+        for (int i = begin; i < begin + size; i++) {
+            if (content.get(i) == '\n') {
+                lines++;
+            }
+        }
+
+        // the last line may not end with a line break
+        if (content.get(begin + size - 1) != '\n') {
+            lines++;
+        }
+
+        return size / lines > AVERAGE_LINE;
+    }
+
+    /**
+     * Classifies a file read from a stream the same way, for the ones too large to be held in memory: only its head
+     * and its tail are kept while it is read to the end.
+     */
+    public static boolean content(InputStream content) throws IOException {
+        val head = new byte[HEAD];
+        val tail = new byte[TAIL];
+        val buffer = new byte[8192];
+
+        var size = 0L;
+        var lines = 0L;
+        var last = (byte) '\n';
+
+        for (int read; (read = content.read(buffer)) != -1; ) {
+            for (int i = 0; i < read; i++) {
+                if (size < HEAD) {
+                    head[(int) size] = buffer[i];
+                }
+
+                // the tail is a ring, its oldest byte is the next one to be overwritten
+                tail[(int) (size % TAIL)] = buffer[i];
+
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+
+                size++;
+            }
+
+            if (read > 0) {
+                last = buffer[read - 1];
+            }
+        }
+
+        val oldest = size > TAIL ? (int) (size % TAIL) : 0;
+        val end = new String(tail, oldest, (int) Math.min(size, TAIL) - oldest, StandardCharsets.ISO_8859_1) + new String(tail, 0, oldest, StandardCharsets.ISO_8859_1);
+
+        if (marked(new String(head, 0, (int) Math.min(size, HEAD), StandardCharsets.ISO_8859_1), end)) {
+            return true;
+        }
+
+        if (size < MIN_SIZE) {
+            return false;
+        }
+
+        if (last != '\n') {
+            lines++;
+        }
+
+        return size / lines > AVERAGE_LINE;
+    }
+
+    // A generated header at the beginning of a file, or a source map reference at its end
+    private static boolean marked(String head, String tail) {
+        for (val header : headers) {
+            if (head.contains(header)) {
+                return true;
+            }
+        }
+
+        return tail.contains(SOURCE_MAP);
+    }
+
+    // The last value given to an attribute by the rules matching a file, null if it isn't given
+    private Boolean attribute(String file, String key) {
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            val rule = rules.get(i);
+
+            if (!rule.isMatch(file, false)) {
+                continue;
+            }
+
+            for (val attribute : rule.getAttributes()) {
+                if (attribute.getKey().equals(key)) {
+                    return value(attribute);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static Boolean value(Attribute attribute) {
+        switch (attribute.getState()) {
+            case SET:
+                return true;
+            case UNSET:
+                return false;
+            case CUSTOM:
+                return !attribute.getValue().equals("false");
+            default:
+                return null;
+        }
+    }
+
+    private static String ascii(ByteBuffer content, int offset, int length) {
+        val bytes = new byte[length];
+
+        content.duplicate().position(offset).get(bytes);
+
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -1,5 +1,11 @@
 package br.unb.cic.js.miner;
 
+import br.unb.cic.js.miner.metrics.MetricVector;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -8,7 +14,9 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
@@ -37,7 +45,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertTrue(visitor.getTotalArrowDeclarations().get() > 0);
+            assertTrue(visitor.getTotalArrowDeclarations() > 0);
             assertNotNull(p);
         } catch (Exception e) {
             e.printStackTrace();
@@ -52,7 +60,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(10, visitor.getTotalStatements().get());
+            assertEquals(10, visitor.getTotalStatements());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -66,7 +74,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(7, visitor.getTotalStatements().get());
+            assertEquals(7, visitor.getTotalStatements());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -80,7 +88,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(10, visitor.getTotalAsyncDeclarations().get());
+            assertEquals(10, visitor.getTotalAsyncDeclarations());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -94,8 +102,8 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(3, visitor.getTotalArrayDestructuring().get());
-            assertEquals(3, visitor.getTotalObjectDestructuring().get());
+            assertEquals(3, visitor.getTotalArrayDestructuring());
+            assertEquals(3, visitor.getTotalObjectDestructuring());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -110,7 +118,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(1, visitor.getTotalDefaultParameters().get());
+            assertEquals(1, visitor.getTotalDefaultParameters());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -124,7 +132,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(1, visitor.getTotalSpreadArguments().get());
+            assertEquals(1, visitor.getTotalSpreadArguments());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -138,8 +146,8 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(2, visitor.getTotalNewPromises().get());
-            assertEquals(1, visitor.getTotalPromiseAllAndThenIdiom().get());
+            assertEquals(2, visitor.getTotalNewPromises());
+            assertEquals(1, visitor.getTotalPromiseAllAndThenIdiom());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -153,7 +161,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(3, visitor.getTotalAwaitDeclarations().get());
+            assertEquals(3, visitor.getTotalAwaitDeclarations());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -167,7 +175,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(6, visitor.getTotalLetDeclarations().get());
+            assertEquals(6, visitor.getTotalLetDeclarations());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -181,7 +189,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(5, visitor.getTotalConstDeclaration().get());
+            assertEquals(5, visitor.getTotalConstDeclaration());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -195,8 +203,8 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(5, visitor.getTotalExportDeclarations().get());
-            assertEquals(8, visitor.getTotalImportStatements().get());
+            assertEquals(5, visitor.getTotalExportDeclarations());
+            assertEquals(8, visitor.getTotalImportStatements());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -210,7 +218,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(1, visitor.getTotalRestStatements().get());
+            assertEquals(1, visitor.getTotalRestStatements());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -224,7 +232,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(15, visitor.getTotalClassDeclarations().get());
+            assertEquals(15, visitor.getTotalClassDeclarations());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -238,7 +246,7 @@ public class ParserTest {
             JavaScriptParser.ProgramContext p = parser.parse(content);
             JSVisitor visitor = new JSVisitor();
             p.accept(visitor);
-            assertEquals(6, visitor.getTotalYieldDeclarations().get());
+            assertEquals(6, visitor.getTotalYieldDeclarations());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -271,8 +279,8 @@ public class ParserTest {
                 assertNotNull(p);
                 JSVisitor visitor = new JSVisitor();
                 p.accept(visitor);
-                totalFunctionDeclarations = visitor.getTotalArrowDeclarations().incrementAndGet();
-                totalAsyncDeclarations += visitor.getTotalAsyncDeclarations().incrementAndGet();
+                totalFunctionDeclarations = visitor.getTotalArrowDeclarations() + 1;
+                totalAsyncDeclarations += visitor.getTotalAsyncDeclarations() + 1;
             } catch (Throwable e) {
                 errors++;
             }
@@ -283,4 +291,148 @@ public class ParserTest {
         assertEquals(65, totalAsyncDeclarations);
         assertEquals(0, errors);
     }
+
+    @Test
+    public void testReuse() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        URI directoryPath = classLoader.getResource("examples").toURI();
+
+        List<Path> files = new ArrayList<>();
+
+        Files.list(Paths.get(directoryPath)).sorted().forEach(files::add);
+
+        for (Path file : files) {
+            // leave the lexer of the reused parser in the middle of a strict scope and of a template string
+            try {
+                parser.parse("'use strict'; function f() { let s = `${ `${a");
+                fail();
+            } catch (Exception e) {
+                // expected
+            }
+
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+            JSVisitor reused = new JSVisitor();
+            parser.parse(content).accept(reused);
+
+            JSVisitor fresh = new JSVisitor();
+            new JSParser().parse(content).accept(fresh);
+
+            assertArrayEquals(file.toString(), MetricVector.of(fresh).values(), MetricVector.of(reused).values());
+        }
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        JSParser limited = new JSParser(JSParser.DEFAULT_CACHE_LIMIT, 0, 100);
+
+        StringBuilder content = new StringBuilder();
+
+        for (int i = 0; i < 100; i++) {
+            content.append("let a").append(i).append(" = ").append(i).append(";\n");
+        }
+
+        try {
+            limited.parse(content.toString());
+            fail();
+        } catch (ParseBudgetException e) {
+            assertTrue(e.getMessage().startsWith("too-many-tokens:"));
+        }
+
+        // the budget is reset for the next file parsed by the same thread
+        assertNotNull(limited.parse("let a = 1;"));
+    }
+
+    @Test
+    public void testLexerMode() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        URI directoryPath = classLoader.getResource("examples").toURI();
+
+        List<Path> files = new ArrayList<>();
+
+        Files.list(Paths.get(directoryPath)).sorted().forEach(files::add);
+
+        for (Path file : files) {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+            JSVisitor visitor = new JSVisitor();
+            parser.parse(content).accept(visitor);
+
+            MetricVector parsed = MetricVector.of(visitor);
+            MetricVector lexed = parser.lex(content);
+
+            for (int i = 0; i < MetricVector.columns.length; i++) {
+                if (Mode.LEXER.available(i)) {
+                    assertEquals(file.getFileName() + " " + MetricVector.columns[i], parsed.get(i), lexed.get(i));
+                } else {
+                    assertEquals(0, lexed.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        String content = "for (key in obj) {}\nlet a = 1;\n";
+
+        // the SLL prediction alone bails out on this valid input
+        JavaScriptParser sll = new JavaScriptParser(new CommonTokenStream(new JavaScriptLexer(CharStreams.fromString(content))));
+        sll.removeErrorListeners();
+        sll.setErrorHandler(new BailErrorStrategy());
+        sll.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+        try {
+            sll.program();
+            fail();
+        } catch (ParseCancellationException e) {
+            // expected
+        }
+
+        JSVisitor visitor = new JSVisitor();
+        parser.parse(content).accept(visitor);
+
+        assertEquals(1, visitor.getTotalLetDeclarations());
+        assertEquals(3, visitor.getTotalStatements());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        // the errors are reported by the LL stage, with the position of the offending token
+        String[] invalid = {"function (\n", "let a = 1;\nlet # = 2;\n"};
+        String[] messages = {"line: 1 : 0 - no viable alternative at input 'function'", "line: 2 : 4 - no viable alternative at input '#'"};
+
+        for (int i = 0; i < invalid.length; i++) {
+            try {
+                parser.parse(invalid[i]);
+                fail();
+            } catch (ParseCancellationException e) {
+                assertEquals(messages[i], e.getMessage().trim());
+            }
+        }
+
+        // the reused parser still bails out on the first stage of the next file
+        assertNotNull(parser.parse("for (key in obj) {}"));
+    }
+
+    @Test
+    public void testCacheLimit() throws Exception {
+        JSParser limited = new JSParser(1, 0, 0);
+
+        // the size of the caches is only checked every 64 files
+        for (int i = 0; i < 63; i++) {
+            limited.parse("let a" + i + " = " + i + ";");
+        }
+
+        assertTrue(limited.cacheSize() > 1);
+
+        limited.parse("let b = 1;");
+
+        assertEquals(0, limited.cacheSize());
+
+        // the next parse warms up the new caches, which are kept until the next check
+        limited.parse("let c = 1;");
+
+        assertTrue(limited.cacheSize() > 0);
+        assertNotNull(limited.parse("for (key in obj) {}"));
+    }
 }
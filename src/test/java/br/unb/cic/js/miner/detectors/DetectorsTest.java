@@ -0,0 +1,90 @@
+package br.unb.cic.js.miner.detectors;
+
+import br.unb.cic.js.miner.JSParser;
+import br.unb.cic.js.miner.Mode;
+import br.unb.cic.js.miner.detectors.plugin.DebuggerDetector;
+import br.unb.cic.js.miner.metrics.MetricVector;
+import br.unb.cic.js.miner.metrics.Summary;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DetectorsTest {
+
+    private static final String SOURCE = "debugger;\nasync function f() { debugger; await g(...args); }\nconst h = async () => 1;\n";
+
+    // The detectors of the classpath followed by a plugin
+    private Detectors plugged() {
+        val detectors = new ArrayList<>(Detectors.detectors());
+
+        detectors.add(new DebuggerDetector());
+
+        return Detectors.of(detectors, MetricVector.columns);
+    }
+
+    @Test
+    public void testLayout() {
+        assertEquals(0, MetricVector.column("files"));
+        assertEquals(MetricVector.ERRORS, MetricVector.column("errors"));
+        assertEquals(MetricVector.GENERATED_KIB, MetricVector.column("generated-kib"));
+        assertEquals(MetricVector.GENERATED_KIB + 1, MetricVector.columns.length);
+
+        assertTrue(Summary.header().startsWith("project,date,revision,files,async-declarations,"));
+        assertTrue(Summary.header().endsWith(",generated-files,generated-kib\n"));
+
+        // the columns of the reports keep their place, the plugin is appended
+        val columns = plugged().columns();
+
+        assertArrayEquals(MetricVector.columns, Arrays.copyOf(columns, MetricVector.columns.length));
+        assertEquals("debugger-statements", columns[columns.length - 1]);
+    }
+
+    @Test
+    public void testMeasure() throws Exception {
+        val vector = Detectors.measure(new JSParser().parse(SOURCE));
+
+        assertEquals(1, vector.get(MetricVector.FILES));
+        assertEquals(2, vector.get(MetricVector.column("async-declarations")));
+        assertEquals(1, vector.get(MetricVector.column("await-declarations")));
+        assertEquals(1, vector.get(MetricVector.column("spread-arguments")));
+        assertEquals(1, vector.get(MetricVector.column("arrow-function-declarations")));
+        assertEquals(0, vector.get(MetricVector.ERRORS));
+
+        // a plugin counts its own column, the others are counted as before
+        val values = plugged().count(new JSParser().parse(SOURCE));
+
+        assertEquals(2, values[values.length - 1]);
+        assertArrayEquals(Arrays.copyOfRange(vector.values(), 1, MetricVector.columns.length), Arrays.copyOfRange(values, 1, MetricVector.columns.length));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicate() {
+        val detectors = new ArrayList<>(Detectors.detectors());
+
+        detectors.add(new DebuggerDetector());
+        detectors.add(new DebuggerDetector());
+
+        Detectors.of(detectors, MetricVector.columns);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReserved() {
+        val detectors = new ArrayList<>(Detectors.detectors());
+
+        // the errors are counted by the walker, not by a detector
+        detectors.add(new DebuggerDetector("errors"));
+
+        Detectors.of(detectors, MetricVector.columns);
+    }
+
+    @Test
+    public void testLexerColumns() {
+        // the lexer can't tell what the parse tree detectors count
+        assertFalse(Mode.LEXER.available(MetricVector.column("statements")));
+        assertTrue(Mode.LEXER.available(MetricVector.column("async-declarations")));
+    }
+}
@@ -0,0 +1,38 @@
+package br.unb.cic.js.miner.detectors.plugin;
+
+import br.unb.cic.js.miner.detectors.Counts;
+import br.unb.cic.js.miner.detectors.Detector;
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import static br.unb.cic.js.miner.JavaScriptParser.RULE_debuggerStatement;
+
+/**
+ * A detector out of the built-in ones, as a plugin would be.
+ */
+public final class DebuggerDetector implements Detector {
+
+    private final String column;
+
+    public DebuggerDetector() {
+        this("debugger-statements");
+    }
+
+    public DebuggerDetector(String column) {
+        this.column = column;
+    }
+
+    @Override
+    public String[] columns() {
+        return new String[]{column};
+    }
+
+    @Override
+    public int[] rules() {
+        return new int[]{RULE_debuggerStatement};
+    }
+
+    @Override
+    public void visit(ParserRuleContext node, Counts counts) {
+        counts.increment(0);
+    }
+}
@@ -0,0 +1,45 @@
+package br.unb.cic.js.miner.metrics;
+
+import lombok.val;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        val histogram = new Histogram();
+
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000_000, histogram.max());
+
+        // every percentile is within the precision of a bucket
+        for (val percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            val expected = percentile * 1_000_000;
+            val actual = histogram.percentile(percentile);
+
+            assertTrue(actual >= expected);
+            assertTrue(actual <= expected * 1.04);
+        }
+    }
+
+    @Test
+    public void testSmallValues() {
+        val histogram = new Histogram();
+
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(-5);
+
+        assertEquals(3, histogram.count());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(3, histogram.percentile(100));
+        assertEquals(1, histogram.mean());
+        assertEquals(0, new Histogram().percentile(99));
+    }
+}
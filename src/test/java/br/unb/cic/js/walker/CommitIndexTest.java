@@ -0,0 +1,88 @@
+package br.unb.cic.js.walker;
+
+import lombok.val;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class CommitIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private ObjectId commit(Git git, long date) throws Exception {
+        val author = new PersonIdent("author", "author@example.com", new Date(date), TimeZone.getTimeZone("UTC"));
+
+        return git.commit().setAllowEmpty(true).setMessage("at " + date).setAuthor(author).setCommitter(author).call();
+    }
+
+    @Test
+    public void testSample() throws Exception {
+        try (val git = Git.init().setDirectory(folder.newFolder("repository")).call()) {
+            val ids = new ArrayList<ObjectId>();
+
+            // a commit a day for ten days, and a second one on the last day
+            for (int day = 1; day <= 10; day++) {
+                ids.add(commit(git, day * DAY));
+            }
+
+            val last = commit(git, 10 * DAY);
+
+            val index = CommitIndex.build(git.getRepository(), last);
+
+            assertEquals(11, index.size());
+            assertEquals(11, index.count(new Date(0), new Date(20 * DAY)));
+            assertEquals(5, index.count(new Date(3 * DAY), new Date(7 * DAY)));
+
+            // every 3 days from the last one, which is the latest commit of its date
+            val groups = index.sample(new Date(2 * DAY), new Date(10 * DAY), 3);
+
+            assertEquals(3, groups.length);
+            assertEquals(new Date(4 * DAY), index.date(groups[0]));
+            assertEquals(new Date(7 * DAY), index.date(groups[1]));
+            assertEquals(last, index.id(groups[2]));
+
+            assertEquals(ids.get(4), index.id(index.find(ids.get(4).name())));
+            assertEquals(-1, index.find(ObjectId.zeroId().name()));
+            assertEquals(-1, index.find("not a hash"));
+        }
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        val file = folder.getRoot().toPath().resolve("repository.commits");
+
+        try (val git = Git.init().setDirectory(folder.newFolder("repository")).call()) {
+            val first = commit(git, DAY);
+            val second = commit(git, 2 * DAY);
+
+            val built = CommitIndex.open(git.getRepository(), first, file);
+            val loaded = CommitIndex.open(git.getRepository(), first, file);
+
+            assertTrue(Files.exists(file));
+            assertEquals(1, loaded.size());
+            assertEquals(built.id(0), loaded.id(0));
+            assertEquals(built.date(0), loaded.date(0));
+
+            // another head is walked again
+            val moved = CommitIndex.open(git.getRepository(), second, file);
+
+            assertEquals(2, moved.size());
+            assertEquals(second, moved.head);
+            assertEquals(List.of(first, second), List.of(moved.id(0), moved.id(1)));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package br.unb.cic.js.walker;
+
+import br.unb.cic.js.miner.metrics.Summary;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReorderTest {
+
+    private Summary summary(int group) {
+        return Summary.builder().project("demo").date(new Date(group)).build();
+    }
+
+    @Test(timeout = 10000)
+    public void testWindow() throws Exception {
+        val handed = new ArrayList<Long>();
+        val reorder = new Reorder(6, 2, summary -> handed.add(summary.date.getTime()));
+
+        reorder.complete(1, summary(1));
+
+        // the group after the window waits until the first one is handed over
+        val ahead = new Thread(() -> {
+            try {
+                reorder.complete(2, summary(2));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        ahead.start();
+        ahead.join(200);
+
+        assertTrue(ahead.isAlive());
+        assertTrue(handed.isEmpty());
+
+        reorder.complete(0, summary(0));
+        ahead.join();
+
+        assertEquals(List.of(0L, 1L, 2L), handed);
+    }
+
+    @Test(timeout = 10000)
+    public void testAbort() throws Exception {
+        val handed = new ArrayList<Long>();
+        val reorder = new Reorder(6, 1, summary -> handed.add(summary.date.getTime()));
+
+        val ahead = new Thread(() -> {
+            try {
+                reorder.complete(3, summary(3));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        ahead.start();
+
+        reorder.abort();
+        ahead.join();
+
+        assertTrue(handed.isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void testSpareWorker() throws Exception {
+        val handed = new ArrayList<Long>();
+        val reorder = new Reorder(6, 1, summary -> handed.add(summary.date.getTime()));
+
+        // a single worker, which the lane waiting ahead would hold if it blocked without telling the pool
+        val pool = new ForkJoinPool(1, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false, 0, 2, 1, saturated -> true, 60, TimeUnit.SECONDS);
+
+        try {
+            val ahead = pool.submit(() -> {
+                reorder.complete(1, summary(1));
+                return null;
+            });
+
+            Thread.sleep(200);
+
+            assertFalse(ahead.isDone());
+
+            pool.submit(() -> {
+                reorder.complete(0, summary(0));
+                return null;
+            }).get();
+
+            ahead.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(List.of(0L, 1L), handed);
+    }
+}
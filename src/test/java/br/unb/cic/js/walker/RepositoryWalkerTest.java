@@ -0,0 +1,367 @@
+package br.unb.cic.js.walker;
+
+import br.unb.cic.js.date.Interval;
+import br.unb.cic.js.miner.JSParser;
+import br.unb.cic.js.miner.metrics.MetricVector;
+import br.unb.cic.js.miner.metrics.Summary;
+import br.unb.cic.js.walker.report.CsvReport;
+import br.unb.cic.js.walker.report.Report;
+import br.unb.cic.js.walker.cache.BlobStore;
+import br.unb.cic.js.walker.monitor.Monitor;
+import br.unb.cic.js.walker.rules.GeneratedPolicy;
+import lombok.val;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class RepositoryWalkerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    // The repository the commits are made on, the walkers traverse clones of it as they need a remote main branch
+    private Git origin;
+    private int days;
+
+    @Before
+    public void setup() throws Exception {
+        origin = Git.init().setInitialBranch("main").setDirectory(folder.newFolder("origin")).call();
+    }
+
+    @After
+    public void teardown() {
+        origin.close();
+    }
+
+    private void write(String file, String content) throws Exception {
+        val path = origin.getRepository().getWorkTree().toPath().resolve(file);
+
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+
+        origin.add().addFilepattern(file).call();
+    }
+
+    private void remove(String file) throws Exception {
+        origin.rm().addFilepattern(file).call();
+    }
+
+    // A commit a day at noon, so every commit is a group of its own
+    private void commit() throws Exception {
+        val date = new Date(++days * DAY + DAY / 2);
+        val author = new PersonIdent("author", "author@example.com", date, TimeZone.getTimeZone("UTC"));
+
+        origin.commit().setMessage("day " + days).setAuthor(author).setCommitter(author).call();
+    }
+
+    private Path clone(String name) throws Exception {
+        val directory = folder.newFolder(name);
+
+        try (val git = Git.cloneRepository().setURI(origin.getRepository().getDirectory().toURI().toString()).setDirectory(directory).call()) {
+            // jgit doesn't record the default branch of the remote as git does
+            git.getRepository().updateRef("refs/remotes/origin/HEAD").link("refs/remotes/origin/main");
+        }
+
+        return directory.toPath();
+    }
+
+    private Interval interval(int until) {
+        return Interval.builder().begin(new Date(0)).end(new Date((until + 1) * DAY)).build();
+    }
+
+    private List<Summary> traverse(RepositoryWalker.RepositoryWalkerBuilder builder, String name) throws Exception {
+        return builder.project("demo").path(clone(name)).build().traverse(interval(days), 1, 2);
+    }
+
+    private static void assertSameTotals(List<Summary> expected, List<Summary> actual) {
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).revision, actual.get(i).revision);
+            assertArrayEquals("totals of " + expected.get(i).revision, expected.get(i).totals.values(), actual.get(i).totals.values());
+            assertEquals(expected.get(i).errors.size(), actual.get(i).errors.size());
+        }
+    }
+
+    private static void assertSameSummaries(List<Summary> expected, List<Summary> actual) {
+        assertSameTotals(expected, actual);
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("errors of " + expected.get(i).revision, expected.get(i).errors, actual.get(i).errors);
+        }
+    }
+
+    @Test
+    public void testCheckoutFree() throws Exception {
+        write("src/index.js", "const p = new Promise((resolve) => resolve(1));\np.then(v => v);\n");
+        write("src/util.js", "async function f() { await Promise.all([]); }\n");
+        write("lib/vendor.js", "var skipped = 1;\n");
+        commit();
+
+        write("src/index.js", "const a = 1;\nlet b = a ?? 2;\n");
+        write("src/broken.js", "function (\n");
+        commit();
+
+        remove("src/util.js");
+        write("src/nested/deep.js", "export default class A { m() { return this?.x; } }\n");
+        commit();
+
+        val checkout = traverse(RepositoryWalker.builder(), "checkout");
+        val checkoutFree = traverse(RepositoryWalker.builder().checkoutFree(true), "checkout-free");
+
+        assertEquals(3, checkout.size());
+        assertTrue(checkout.stream().allMatch(summary -> summary.totals != null));
+        assertEquals(1, checkout.get(1).errors.size());
+
+        assertSameTotals(checkout, checkoutFree);
+    }
+
+    @Test
+    public void testCheckoutFreeUtf8() throws Exception {
+        // identifiers of several bytes, which a decoder reading the blob with another charset would break
+        write("src/names.js", "const a\u00e7\u00e3o = 1;\nlet \u540d\u524d = a\u00e7\u00e3o ?? '\u00fcn\u00efcode';\nclass Gr\u00f6\u00dfe { m() { return this?.\u03c0; } }\n");
+        commit();
+
+        val checkout = traverse(RepositoryWalker.builder(), "checkout");
+        val checkoutFree = traverse(RepositoryWalker.builder().checkoutFree(true), "checkout-free");
+
+        assertTrue(checkout.get(0).errors.isEmpty());
+        assertEquals(1, checkout.get(0).totals.get(MetricVector.FILES));
+        assertEquals(1, checkout.get(0).totals.get(MetricVector.column("let-declarations")));
+
+        assertSameSummaries(checkout, checkoutFree);
+    }
+
+    @Test
+    public void testMaxFileSize() throws Exception {
+        write("src/small.js", "let a = 1;\n");
+        write("src/large.js", "let b = 1;\n".repeat(100));
+        commit();
+
+        for (val checkoutFree : new boolean[]{false, true}) {
+            val summaries = traverse(RepositoryWalker.builder().checkoutFree(checkoutFree).maxFileSize(100), "limit-" + checkoutFree);
+            val totals = summaries.get(0).totals;
+
+            // the large file is counted, but neither parsed nor as an error
+            assertEquals(2, totals.get(MetricVector.FILES));
+            assertEquals(0, totals.get(MetricVector.ERRORS));
+            assertEquals(1, totals.get(MetricVector.column("let-declarations")));
+
+            val reason = summaries.get(0).errors.entrySet().iterator().next();
+
+            assertEquals(1, summaries.get(0).errors.size());
+            assertTrue(reason.getKey().contains("src/large.js"));
+            assertTrue(reason.getValue().startsWith("skipped"));
+        }
+    }
+
+    @Test
+    public void testTokenLimit() throws Exception {
+        write("src/a.js", "let a = [1, 2, 3, 4, 5, 6, 7, 8];\n");
+        commit();
+
+        try (val store = BlobStore.open(folder.getRoot().toPath().resolve("blobs.store"))) {
+            val limited = traverse(RepositoryWalker.builder().checkoutFree(true).store(store).parser(new JSParser(JSParser.DEFAULT_CACHE_LIMIT, 0, 10)), "limited");
+
+            assertTrue(limited.get(0).errors.values().iterator().next().startsWith("too-many-tokens"));
+
+            // the blob isn't stored as a failure, a run with a larger limit parses it
+            val unlimited = traverse(RepositoryWalker.builder().checkoutFree(true).store(store), "unlimited");
+
+            assertTrue(unlimited.get(0).errors.isEmpty());
+            assertEquals(1, unlimited.get(0).totals.get(MetricVector.column("let-declarations")));
+        }
+    }
+
+    @Test
+    public void testLargeBlobs() throws Exception {
+        val source = "const value = compute(argument);\n".repeat(100);
+
+        write("src/plain.js", source);
+        write("src/header.js", "// @generated\n" + source);
+        write("src/minified.js", source.replace('\n', ' '));
+        write("src/mapped.js", source + "//# sourceMappingURL=mapped.js.map\n");
+        write("src/broken.js", "// @generated\nfunction (\n" + source);
+        commit();
+
+        // the clones get whole blobs, the deltas of a pack are inflated whatever their size
+        origin.getRepository().getConfig().setBoolean("pack", null, "deltacompression", false);
+        origin.getRepository().getConfig().save();
+
+        for (val policy : GeneratedPolicy.values()) {
+            val inflated = traverse(RepositoryWalker.builder().checkoutFree(true).generated(policy), "inflated-" + policy);
+
+            // blobs from this size on are streamed instead of inflated in memory
+            val config = new WindowCacheConfig();
+
+            config.setStreamFileThreshold(1024);
+            config.install();
+
+            try {
+                val streamed = traverse(RepositoryWalker.builder().checkoutFree(true).generated(policy), "streamed-" + policy);
+
+                assertEquals(4, streamed.get(0).totals.get(MetricVector.GENERATED));
+                assertSameSummaries(inflated, streamed);
+            } finally {
+                new WindowCacheConfig().install();
+            }
+        }
+    }
+
+    @Test
+    public void testIncremental() throws Exception {
+        write("src/a.js", "const a = 1;\n");
+        write("src/b.js", "function b() { return new Promise(() => {}); }\n");
+        write("src/bundle.js", "// @generated\nvar x = 1;\n");
+        write("src/broken.js", "function (\n");
+        commit();
+
+        // modified, renamed and deleted files
+        write("src/a.js", "const a = 1;\nlet b = a ?? 2;\n");
+        remove("src/b.js");
+        write("src/renamed/b.js", "function b() { return new Promise(() => {}); }\n");
+        commit();
+
+        remove("src/a.js");
+        write("src/c.js", "class C { m() { return this?.c; } }\n");
+        commit();
+
+        // the attributes flip whether the files are generated, whatever their content
+        write(".gitattributes", "src/c.js linguist-generated\nsrc/bundle.js linguist-generated=false\n");
+        commit();
+
+        write("src/broken.js", "function b( {\n");
+        write("src/d.js", "Promise.all([]).then(() => 1);\n");
+        commit();
+
+        write(".gitattributes", "src/d.js linguist-generated\n");
+        commit();
+
+        remove("src/broken.js");
+        commit();
+
+        for (val policy : GeneratedPolicy.values()) {
+            val full = traverse(RepositoryWalker.builder().checkoutFree(true).generated(policy), "full-" + policy);
+            val incremental = traverse(RepositoryWalker.builder().checkoutFree(true).incremental(true).generated(policy), "incremental-" + policy);
+
+            assertEquals(7, full.size());
+            assertEquals(1, full.get(0).errors.size());
+            assertTrue(full.get(6).errors.isEmpty());
+
+            if (policy != GeneratedPolicy.PARSE) {
+                assertFalse(Arrays.equals(full.get(2).totals.values(), full.get(3).totals.values()));
+            }
+
+            assertSameSummaries(full, incremental);
+        }
+    }
+
+    @Test
+    public void testIncrementalProgress() throws Exception {
+        write("src/a.js", "const a = 1;\n");
+        write("src/b.js", "const b = 1;\n");
+        commit();
+
+        write("src/a.js", "const a = 2;\n");
+        commit();
+
+        val monitor = new Monitor();
+
+        RepositoryWalker.builder().project("demo").path(clone("demo")).checkoutFree(true).incremental(true).monitor(monitor).build()
+                .traverse(interval(days), 1, 2);
+
+        // the previous version of a.js is subtracted, but only its new version is analyzed by the second group
+        assertEquals(3, monitor.getFilesAnalyzed());
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        for (int day = 1; day <= 4; day++) {
+            write("src/day" + day + ".js", "let a" + day + " = " + day + ";\n");
+            write("src/broken.js", "function (" + day + "\n");
+            commit();
+        }
+
+        val full = folder.newFolder("full").toPath();
+        val resumed = folder.newFolder("resumed").toPath();
+
+        try (val report = CsvReport.open(full, "demo", true)) {
+            RepositoryWalker.builder().project("demo").path(clone("first")).checkoutFree(true).build()
+                    .traverse(interval(days), 1, 1, report.last(), report::write);
+        }
+
+        // a run interrupted after the second day, and then resumed from its report
+        val path = clone("second");
+
+        try (val report = CsvReport.open(resumed, "demo", true)) {
+            RepositoryWalker.builder().project("demo").path(path).checkoutFree(true).build()
+                    .traverse(interval(2), 1, 1, report.last(), report::write);
+        }
+
+        val groups = new ArrayList<Summary>();
+
+        try (val report = CsvReport.open(resumed, "demo", true)) {
+            assertNotNull(report.last());
+
+            RepositoryWalker.builder().project("demo").path(path).checkoutFree(true).build()
+                    .traverse(interval(days), 1, 1, report.last(), summary -> {
+                        groups.add(summary);
+                        report.write(summary);
+                    });
+        }
+
+        // only the groups after the last one reported are collected again
+        assertEquals(2, groups.size());
+        assertEquals(new Date(3 * DAY + DAY / 2), groups.get(0).date);
+
+        assertEquals(Files.readString(full.resolve("demo.csv")), Files.readString(resumed.resolve("demo.csv")));
+        assertEquals(Files.readString(full.resolve("demo-errors.txt")), Files.readString(resumed.resolve("demo-errors.txt")));
+    }
+
+    @Test
+    public void testCompleted() throws Exception {
+        for (int day = 1; day <= 4; day++) {
+            write("src/day" + day + ".js", "let a" + day + " = " + day + ";\n");
+            commit();
+        }
+
+        val output = folder.newFolder("output").toPath();
+        val path = clone("demo");
+
+        for (val steps : new int[]{1, 2, 1}) {
+            RepositoryWalkerTask.builder()
+                    .walker(RepositoryWalker.builder().project("demo").path(path).checkoutFree(true).build())
+                    .output(output)
+                    .interval(interval(days))
+                    .steps(steps)
+                    .hash("")
+                    .threads(1)
+                    .build()
+                    .run();
+
+            assertEquals(RepositoryWalkerTask.run(interval(days), steps, ""), Report.completed(output, "demo"));
+
+            // the report finished with other steps starts over instead of being resumed
+            assertEquals(1 + 4 / steps, Files.readAllLines(output.resolve("demo.csv")).size());
+        }
+
+        assertNotEquals(RepositoryWalkerTask.run(interval(days), 1, ""), RepositoryWalkerTask.run(interval(days - 1), 1, ""));
+    }
+}
@@ -0,0 +1,50 @@
+package br.unb.cic.js.walker;
+
+import lombok.val;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class WalkerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFields() {
+        assertEquals(List.of("a", "b, c", "say \"hi\"", ""), Walker.fields("a,\"b, c\",\"say \"\"hi\"\"\","));
+    }
+
+    @Test
+    public void testManifest() throws Exception {
+        val file = folder.newFile("projects.csv").toPath();
+
+        Files.writeString(file, "repository,repository_name,homepage\n" +
+                "airbnb/javascript,javascript,\"https://a.com/x,y\"\n" +
+                "\"d3, the library\",d3,https://d3js.org\n" +
+                "broken/row\n" +
+                "\n" +
+                "again/javascript,javascript,\n");
+
+        assertEquals(List.of("javascript", "d3"), Walker.manifest(file));
+
+        Files.writeString(file, "javascript\nd3\n");
+
+        assertEquals(List.of("javascript", "d3"), Walker.manifest(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void testManifestWithoutColumn() throws Exception {
+        val file = folder.newFile("projects.csv").toPath();
+
+        Files.writeString(file, "repository,name\nairbnb/javascript,javascript\n");
+
+        Walker.manifest(file);
+    }
+}
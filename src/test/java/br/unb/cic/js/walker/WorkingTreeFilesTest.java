@@ -0,0 +1,55 @@
+package br.unb.cic.js.walker;
+
+import lombok.val;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorkingTreeFilesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void touch(Path root, String file) throws Exception {
+        val path = root.resolve(file);
+
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "let a = 1;");
+    }
+
+    @Test
+    public void testPruning() throws Exception {
+        val root = folder.newFolder("lib").toPath();
+
+        touch(root, "index.js");
+        touch(root, "README.md");
+        touch(root, "src/app.js");
+        touch(root, "src/combine.js");
+        touch(root, "node_modules/module/index.js");
+        touch(root, "src/vendor/jquery.js");
+        touch(root, ".git/hooks/hook.js");
+
+        // a link back to the root must not be walked forever
+        Files.createSymbolicLink(root.resolve("src/loop"), root);
+        Files.createSymbolicLink(root.resolve("src/broken"), root.resolve("missing"));
+
+        val files = new ArrayList<String>();
+
+        try (val iterator = new WorkingTreeFiles(root)) {
+            iterator.forEachRemaining(file -> files.add(root.relativize(file).toString()));
+        }
+
+        Collections.sort(files);
+
+        // the repository itself may be inside an excluded directory
+        assertEquals(List.of("index.js", "src/app.js", "src/combine.js"), files);
+    }
+}
@@ -0,0 +1,84 @@
+package br.unb.cic.js.walker.cache;
+
+import br.unb.cic.js.miner.metrics.MetricVector;
+import lombok.val;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class BlobStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectId parsed = ObjectId.fromString("8ab686eafeb1f44702738c8b0f24f2567c36da6d");
+    private final ObjectId failed = ObjectId.fromString("e69de29bb2d1d6434b8b29ae775ad8c2e48c5391");
+
+    private MetricVector vector() {
+        val values = new int[MetricVector.columns.length];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 3;
+        }
+
+        return new MetricVector(values);
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        val path = folder.getRoot().toPath().resolve("blobs.store");
+
+        try (val store = BlobStore.open(path)) {
+            store.put(parsed, vector());
+            store.fail(failed, "line 3:7 mismatched input\nnear ')'");
+
+            // blobs appended during the execution are visible right away
+            assertArrayEquals(vector().values(), store.get(parsed).values());
+        }
+
+        try (val store = BlobStore.open(path)) {
+            assertEquals(2, store.size());
+            assertArrayEquals(vector().values(), store.get(parsed).values());
+            assertFalse(store.failed(parsed));
+            assertTrue(store.failed(failed));
+            assertEquals(1, store.get(failed).get(MetricVector.ERRORS));
+            assertEquals("line 3:7 mismatched input near ')'", store.reason(failed));
+            assertNull(store.reason(parsed));
+        }
+    }
+
+    @Test
+    public void testPartialRecord() throws Exception {
+        val path = folder.getRoot().toPath().resolve("blobs.store");
+
+        try (val store = BlobStore.open(path)) {
+            store.put(parsed, vector());
+        }
+
+        // simulate a crash in the middle of an append
+        Files.write(path, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (val store = BlobStore.open(path)) {
+            assertEquals(1, store.size());
+
+            store.fail(failed, "timeout");
+        }
+
+        // and in the middle of a reason
+        Files.write(path.resolveSibling("blobs.store.failures"), "8ab686ea".getBytes(), StandardOpenOption.APPEND);
+
+        try (val store = BlobStore.open(path)) {
+            assertEquals(2, store.size());
+            assertArrayEquals(vector().values(), store.get(parsed).values());
+            assertTrue(store.failed(failed));
+            assertEquals("timeout", store.reason(failed));
+            assertNull(store.reason(parsed));
+        }
+    }
+}
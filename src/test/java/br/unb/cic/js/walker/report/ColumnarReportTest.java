@@ -0,0 +1,219 @@
+package br.unb.cic.js.walker.report;
+
+import br.unb.cic.js.miner.Mode;
+import br.unb.cic.js.miner.metrics.MetricVector;
+import br.unb.cic.js.miner.metrics.Summary;
+import lombok.val;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ColumnarReportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private Summary summary(int row) {
+        return summary(row, row);
+    }
+
+    private Summary summary(int row, int revision) {
+        val values = new int[MetricVector.columns.length];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row * 100 + i;
+        }
+
+        return Summary.builder()
+                .project("demo")
+                .date(new Date(row * DAY))
+                .revision(String.format("%040x", revision))
+                .totals(new MetricVector(values))
+                .errors(Map.of())
+                .build();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        val output = folder.getRoot().toPath();
+        val rows = 261;
+
+        try (val report = ColumnarReport.open(output, "demo", true)) {
+            assertNull(report.last());
+
+            for (int row = 0; row < rows; row++) {
+                report.write(summary(row));
+            }
+
+            report.complete("interval 01-01-1970 31-12-1970, steps 1\n");
+        }
+
+        assertEquals("interval 01-01-1970 31-12-1970, steps 1\n", Report.completed(output, "demo"));
+
+        val table = ColumnarReport.read(output.resolve("demo.jsmc"));
+
+        assertEquals(rows, table.rows);
+        assertEquals((rows + ColumnarReport.GROUP_ROWS - 1) / ColumnarReport.GROUP_ROWS, table.groups);
+
+        for (int row = 0; row < rows; row++) {
+            assertEquals("demo", table.project[row]);
+            assertEquals(row * DAY, table.date[row]);
+            assertEquals(String.format("%040x", row), table.revision[row]);
+            assertEquals(row * 100 + MetricVector.ERRORS, table.column("errors")[row]);
+        }
+    }
+
+    // Copies the files of the report as they are on disk, as a crash would leave them
+    private static void copy(Path from, Path to, String... files) throws Exception {
+        for (val file : files) {
+            Files.copy(from.resolve(file), to.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Test
+    public void testGroups() throws Exception {
+        val output = folder.getRoot().toPath();
+        val rows = 100;
+
+        try (val report = ColumnarReport.open(output, "demo", true)) {
+            // ten groups in a row on the same revision
+            for (int row = 0; row < rows; row++) {
+                report.write(summary(row, row / 10));
+            }
+
+            report.complete("steps 1\n");
+        }
+
+        val table = ColumnarReport.read(output.resolve("demo.jsmc"));
+
+        assertEquals(rows, table.rows);
+        assertEquals(2, table.groups);
+
+        // the revisions 0 to 6 in the first group and 6 to 9 in the second one
+        assertEquals(7 + 4, table.revisions);
+
+        for (int row = 0; row < rows; row++) {
+            assertEquals("demo", table.project[row]);
+            assertEquals(String.format("%040x", row / 10), table.revision[row]);
+        }
+
+        assertFalse(Files.exists(output.resolve("demo.jsmc.journal")));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        val output = folder.getRoot().toPath();
+        val crashed = folder.newFolder("crashed").toPath();
+        val file = output.resolve("demo.jsmc");
+
+        try (val report = ColumnarReport.open(output, "demo", true)) {
+            for (int row = 0; row < 5; row++) {
+                report.write(summary(row));
+            }
+
+            // the rows are only in the journal until a whole group is buffered
+            assertEquals(0, ColumnarReport.read(file).rows);
+
+            copy(output, crashed, "demo.jsmc", "demo.jsmc.journal", "demo-errors.txt");
+        }
+
+        // and they are written as a group when the report is closed
+        assertEquals(5, ColumnarReport.read(file).rows);
+
+        // simulate a crash in the middle of the last row
+        try (val channel = FileChannel.open(crashed.resolve("demo.jsmc.journal"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 7);
+        }
+
+        try (val report = ColumnarReport.open(crashed, "demo", true)) {
+            assertFalse(Files.exists(crashed.resolve("demo.done")));
+            assertEquals(3 * DAY, report.last().getTime());
+
+            report.write(summary(4));
+        }
+
+        val table = ColumnarReport.read(crashed.resolve("demo.jsmc"));
+
+        assertEquals(5, table.rows);
+        assertEquals(1, table.groups);
+
+        for (int row = 0; row < 5; row++) {
+            assertEquals(row * DAY, table.date[row]);
+        }
+
+        // a report that isn't resumed starts over
+        try (val report = ColumnarReport.open(crashed, "demo", false)) {
+            assertNull(report.last());
+        }
+
+        assertEquals(0, ColumnarReport.read(crashed.resolve("demo.jsmc")).rows);
+    }
+
+    @Test
+    public void testResumeAfterGroup() throws Exception {
+        val output = folder.getRoot().toPath();
+        val crashed = folder.newFolder("crashed").toPath();
+        val rows = ColumnarReport.GROUP_ROWS;
+
+        try (val report = ColumnarReport.open(output, "demo", true)) {
+            for (int row = 0; row < rows - 1; row++) {
+                report.write(summary(row));
+            }
+
+            copy(output, crashed, "demo.jsmc.journal");
+
+            report.write(summary(rows - 1));
+
+            // a crash right after the group was written, before its rows left the journal
+            copy(output, crashed, "demo.jsmc", "demo-errors.txt");
+        }
+
+        try (val report = ColumnarReport.open(crashed, "demo", true)) {
+            assertEquals((rows - 1) * DAY, report.last().getTime());
+
+            report.write(summary(rows));
+            report.complete("steps 1\n");
+        }
+
+        val table = ColumnarReport.read(crashed.resolve("demo.jsmc"));
+
+        assertEquals(rows + 1, table.rows);
+        assertEquals(2, table.groups);
+
+        for (int row = 0; row <= rows; row++) {
+            assertEquals(row * DAY, table.date[row]);
+        }
+    }
+
+    @Test
+    public void testLexerColumns() throws Exception {
+        val output = folder.getRoot().toPath();
+
+        try (val report = ColumnarReport.open(output, "demo", true, Mode.LEXER)) {
+            report.write(summary(1));
+        }
+
+        val table = ColumnarReport.read(output.resolve("demo.jsmc"));
+
+        assertEquals(1, table.rows);
+        assertNull(table.column("statements"));
+        assertEquals(100 + MetricVector.ERRORS, table.column("errors")[0]);
+
+        // a report of the other mode isn't resumed
+        try (val report = ColumnarReport.open(output, "demo", true, Mode.PARSER)) {
+            assertNull(report.last());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package br.unb.cic.js.walker.report;
+
+import br.unb.cic.js.date.Formatter;
+import br.unb.cic.js.miner.metrics.Metric;
+import br.unb.cic.js.miner.metrics.MetricVector;
+import br.unb.cic.js.miner.metrics.Summary;
+import lombok.val;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CsvReportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static String day(long date) {
+        return Formatter.format(new Date(date));
+    }
+
+    private Summary summary(int row) {
+        val metrics = new ArrayList<Metric<?>>();
+
+        metrics.add(Metric.builder().name("project").value("demo").build());
+        metrics.add(Metric.builder().name("date (dd-mm-yyyy)").value(day(row * DAY)).build());
+        metrics.add(Metric.builder().name("revision").value(String.format("%040x", row)).build());
+
+        for (int i = 0; i < MetricVector.columns.length; i++) {
+            metrics.add(Metric.builder().name(MetricVector.columns[i]).value(row * 100 + i).build());
+        }
+
+        return Summary.builder()
+                .project("demo")
+                .date(new Date(row * DAY))
+                .metrics(metrics)
+                .errors(Map.of("file-" + row, "reason " + row))
+                .build();
+    }
+
+    private List<String> lines() throws Exception {
+        return Files.readAllLines(folder.getRoot().toPath().resolve("demo.csv"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testLast() throws Exception {
+        val output = folder.getRoot().toPath();
+
+        try (val report = CsvReport.open(output, "demo", true)) {
+            assertNull(report.last());
+
+            for (int row = 1; row <= 3; row++) {
+                report.write(summary(row));
+            }
+
+            report.complete("interval 01-01-1970 31-12-1970, steps 1\n");
+        }
+
+        assertEquals("interval 01-01-1970 31-12-1970, steps 1\n", Report.completed(output, "demo"));
+
+        try (val report = CsvReport.open(output, "demo", true)) {
+            assertEquals(day(3 * DAY), day(report.last().getTime()));
+
+            // a resumed project isn't done until it is completed again
+            assertNull(Report.completed(output, "demo"));
+        }
+
+        assertEquals(4, lines().size());
+        assertEquals(Summary.header().trim(), lines().get(0));
+    }
+
+    @Test
+    public void testTornLine() throws Exception {
+        val output = folder.getRoot().toPath();
+        val file = output.resolve("demo.csv");
+
+        try (val report = CsvReport.open(output, "demo", true)) {
+            report.write(summary(1));
+            report.write(summary(2));
+        }
+
+        // simulate a crash in the middle of the third row
+        Files.writeString(file, "demo," + day(3 * DAY) + ",0000", StandardOpenOption.APPEND);
+
+        try (val report = CsvReport.open(output, "demo", true)) {
+            assertEquals(day(2 * DAY), day(report.last().getTime()));
+
+            report.write(summary(3));
+        }
+
+        val lines = lines();
+
+        assertEquals(4, lines.size());
+        assertEquals(summary(3).values(), lines.get(3));
+
+        // the errors of the resumed groups are appended to the ones already written
+        val errors = Files.readString(output.resolve("demo-errors.txt"));
+
+        assertTrue(errors.contains("file-1\nreason 1"));
+        assertTrue(errors.contains("file-3\nreason 3"));
+    }
+
+    @Test
+    public void testHeaderMismatch() throws Exception {
+        val output = folder.getRoot().toPath();
+
+        // a report written with other columns, e.g. by a version with other detectors
+        Files.writeString(output.resolve("demo.csv"), "project,date,revision,statements\ndemo," + day(DAY) + ",abc,1\n");
+        Files.writeString(output.resolve("demo-errors.txt"), "file\nreason\n");
+
+        try (val report = CsvReport.open(output, "demo", true)) {
+            assertNull(report.last());
+
+            report.write(summary(1));
+        }
+
+        val lines = lines();
+
+        assertEquals(2, lines.size());
+        assertEquals(Summary.header().trim(), lines.get(0));
+        assertFalse(Files.readString(output.resolve("demo-errors.txt")).startsWith("file\nreason"));
+    }
+}
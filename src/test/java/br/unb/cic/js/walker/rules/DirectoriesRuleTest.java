@@ -20,16 +20,38 @@ public class DirectoriesRuleTest {
                 "src/something.js",
                 "lib/something_else.js",
                 "vendor/other.js",
+                "src/node_modules/module/index.js",
+                "src/combine.js",
+                "distribution/index.js",
+                "dist",
         };
     }
 
+    // If a file, given by its path relative to the repository root, is outside the excluded directories
+    private static boolean walk(Path filepath) {
+        val parent = filepath.getParent();
+
+        if (parent == null) {
+            return true;
+        }
+
+        for (val segment : parent) {
+            if (DirectoriesRule.excluded(segment.toString())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     @Test
     public void testMatch() {
         val paths = Arrays.stream(files)
                 .map(Path::of)
-                .filter(DirectoriesRule::walk)
+                .filter(DirectoriesRuleTest::walk)
                 .collect(Collectors.toList());
 
-        assertEquals(1, paths.size());
+        // only whole directory names are excluded
+        assertEquals(4, paths.size());
     }
 }
\ No newline at end of file
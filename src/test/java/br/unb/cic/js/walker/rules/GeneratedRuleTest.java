@@ -0,0 +1,97 @@
+package br.unb.cic.js.walker.rules;
+
+import lombok.val;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class GeneratedRuleTest {
+
+    private static ByteBuffer content(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPath() throws Exception {
+        val rule = GeneratedRule.of(String.join("\n",
+                "*.js text",
+                "src/gen/** linguist-generated",
+                "public/*.js linguist-vendored=true",
+                "src/gen/kept.js -linguist-generated",
+                "assets/*.min.js linguist-generated=false").getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(true, rule.path("src/gen/parser.js"));
+        assertEquals(true, rule.path("public/app.js"));
+        assertEquals(true, rule.path("src/jquery.min.js"));
+        assertEquals(true, GeneratedRule.NONE.path("src/jquery-min.js"));
+
+        // the last rule matching a file wins, even against its name
+        assertEquals(false, rule.path("src/gen/kept.js"));
+        assertEquals(false, rule.path("assets/app.min.js"));
+
+        assertNull(rule.path("src/index.js"));
+        assertNull(GeneratedRule.NONE.path("src/gen/parser.js"));
+    }
+
+    @Test
+    public void testContent() {
+        val line = "const value = compute(argument);\n";
+        val source = line.repeat(100);
+
+        assertFalse(GeneratedRule.content(content(source)));
+        assertFalse(GeneratedRule.content(content("")));
+
+        assertTrue(GeneratedRule.content(content("// Generated by CoffeeScript 1.12.7\n" + source)));
+        assertTrue(GeneratedRule.content(content("/******/ (function(modules) { // webpackBootstrap\n" + source)));
+        assertTrue(GeneratedRule.content(content(source + "//# sourceMappingURL=index.js.map\n")));
+
+        // the same statements on a single line
+        assertTrue(GeneratedRule.content(content(source.replace('\n', ' '))));
+
+        // a short line on its own isn't enough
+        assertFalse(GeneratedRule.content(content(line.replace('\n', ' ').repeat(5))));
+
+        // only the remaining bytes are checked, and the position is kept
+        val buffer = content("// @generated\n" + source);
+
+        buffer.position(14);
+
+        assertFalse(GeneratedRule.content(buffer));
+        assertEquals(14, buffer.position());
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        val line = "const value = compute(argument);\n";
+        val source = line.repeat(100);
+
+        val samples = new String[]{
+                "",
+                source,
+                "// @generated\n" + source,
+                source + "//# sourceMappingURL=index.js.map\n",
+                source + "//# sourceMappingURL=" + "x".repeat(1000) + ".map",
+                source.replace('\n', ' '),
+                source.replace('\n', ' ') + "\n",
+                line.replace('\n', ' ').repeat(5),
+                line.repeat(10000)
+        };
+
+        for (val sample : samples) {
+            val bytes = sample.getBytes(StandardCharsets.UTF_8);
+
+            assertEquals(GeneratedRule.content(ByteBuffer.wrap(bytes)), GeneratedRule.content(new ByteArrayInputStream(bytes)));
+        }
+
+        // the tail of a stream is a ring, the source map is found wherever the ring wraps around
+        for (int padding = 0; padding < 40; padding++) {
+            val bytes = (" ".repeat(padding) + source + "//# sourceMappingURL=index.js.map\n").getBytes(StandardCharsets.UTF_8);
+
+            assertTrue(GeneratedRule.content(new ByteArrayInputStream(bytes)));
+        }
+    }
+}